@@ -0,0 +1,153 @@
+/*
+ * Copyright 2017-present The Material Motion Authors. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.material.motion.rebound;
+
+import com.facebook.rebound.BaseSpringSystem;
+import com.facebook.rebound.Spring;
+import com.google.android.material.motion.rebound.CompositeReboundSpring.CompositeSpringListener;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares a frame of many vector springs animated as composites of rebound springs with the
+ * same springs animated by a {@link BatchedSpringSystem}, with either solver.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class BatchedSpringBenchmark {
+
+  @Param({"1", "16", "64"})
+  public int springCount;
+
+  @Param({"2", "4"})
+  public int vectorLength;
+
+  private SteppingSpringLooper reboundLooper;
+  private Spring[][] reboundSprings;
+  private CompositeReboundSpring[] compositeSprings;
+
+  private SteppingSpringLooper batchedLooper;
+  private BatchedSpring[] batchedSprings;
+
+  private SteppingSpringLooper analyticLooper;
+  private BatchedSpring[] analyticSprings;
+  private float[] startValues;
+  private float[] endValues;
+
+  @Setup
+  public void setUp(Blackhole blackhole) {
+    CompositeSpringListener listener = new ConsumingListener(blackhole);
+
+    reboundLooper = new SteppingSpringLooper();
+    BaseSpringSystem reboundSystem = new BaseSpringSystem(reboundLooper);
+    reboundSprings = new Spring[springCount][];
+    compositeSprings = new CompositeReboundSpring[springCount];
+    for (int i = 0; i < springCount; i++) {
+      reboundSprings[i] = Springs.createOscillating(reboundSystem, vectorLength);
+      compositeSprings[i] = new CompositeReboundSpring(reboundSystem, reboundSprings[i]);
+      compositeSprings[i].addListener(listener);
+    }
+
+    startValues = new float[vectorLength];
+    endValues = new float[vectorLength];
+    for (int i = 0; i < vectorLength; i++) {
+      endValues[i] = 100 + i;
+    }
+
+    batchedLooper = new SteppingSpringLooper();
+    batchedSprings = createBatchedSprings(new BatchedSpringSystem(batchedLooper), listener);
+
+    analyticLooper = new SteppingSpringLooper();
+    analyticSprings = createBatchedSprings(
+      new BatchedSpringSystem(analyticLooper, BatchedSpringSystem.Solver.ANALYTIC), listener);
+  }
+
+  private BatchedSpring[] createBatchedSprings(
+    BatchedSpringSystem springSystem, CompositeSpringListener listener) {
+    BatchedSpring[] springs = new BatchedSpring[springCount];
+    for (int i = 0; i < springCount; i++) {
+      springs[i] = springSystem.createSpring(vectorLength);
+      springs[i].setTensionAndFriction(Springs.UNDAMPED.tension, Springs.UNDAMPED.friction);
+      springs[i].setListener(listener);
+      springs[i].setEndValues(endValues);
+    }
+    return springs;
+  }
+
+  @Benchmark
+  public void reboundFrame() {
+    for (int i = 0; i < springCount; i++) {
+      if (compositeSprings[i].isAtRest()) {
+        Springs.restart(reboundSprings[i]);
+      }
+    }
+    reboundLooper.step(SteppingSpringLooper.DEFAULT_FRAME_MILLIS);
+  }
+
+  @Benchmark
+  public void batchedFrame() {
+    restart(batchedSprings);
+    batchedLooper.step(SteppingSpringLooper.DEFAULT_FRAME_MILLIS);
+  }
+
+  @Benchmark
+  public void analyticFrame() {
+    restart(analyticSprings);
+    analyticLooper.step(SteppingSpringLooper.DEFAULT_FRAME_MILLIS);
+  }
+
+  private void restart(BatchedSpring[] springs) {
+    for (int i = 0; i < springCount; i++) {
+      BatchedSpring spring = springs[i];
+      if (spring.isAtRest()) {
+        spring.setEndValues(spring.getCurrentValues()[0] == 0 ? endValues : startValues);
+      }
+    }
+  }
+
+  private static final class ConsumingListener implements CompositeSpringListener {
+
+    private final Blackhole blackhole;
+
+    private ConsumingListener(Blackhole blackhole) {
+      this.blackhole = blackhole;
+    }
+
+    @Override
+    public void onCompositeSpringActivate() {
+    }
+
+    @Override
+    public void onCompositeSpringUpdate(float[] values, ComponentMask updated) {
+      blackhole.consume(values);
+    }
+
+    @Override
+    public void onCompositeSpringAtRest() {
+    }
+  }
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright 2017-present The Material Motion Authors. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.material.motion.rebound;
+
+import com.facebook.rebound.BaseSpringSystem;
+import com.facebook.rebound.Spring;
+import com.google.android.material.motion.rebound.CompositeReboundSpring.CompositeSpringListener;
+import com.google.android.material.motion.rebound.CompositeReboundSpring.SpringTracker;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the per-frame cost of a composite spring as a function of its vector length.
+ * <p>
+ * {@link #aggregate()} isolates the tracker: every individual spring reports an update and the
+ * batch is processed, as at the end of a spring system loop. {@link #frame()} runs a whole
+ * spring system loop, including rebound's own integration and listener dispatch.
+ * {@link #deferredFrame()} does the same with the Handler-deferred dispatch.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class CompositeReboundSpringBenchmark {
+
+  @Param({"1", "2", "4", "16"})
+  public int vectorLength;
+
+  private SteppingSpringLooper looper;
+  private BaseSpringSystem springSystem;
+  private Spring[] springs;
+  private CompositeReboundSpring compositeSpring;
+  private SpringTracker tracker;
+
+  private SteppingSpringLooper deferredLooper;
+  private Spring[] deferredSprings;
+  private CompositeReboundSpring deferredSpring;
+
+  private Blackhole blackhole;
+
+  @Setup
+  public void setUp(Blackhole blackhole) {
+    this.blackhole = blackhole;
+
+    looper = new SteppingSpringLooper();
+    springSystem = new BaseSpringSystem(looper);
+    springs = Springs.createOscillating(springSystem, vectorLength);
+    compositeSpring = new CompositeReboundSpring(springSystem, springs);
+    compositeSpring.addListener(listener);
+    tracker = compositeSpring.tracker;
+
+    deferredLooper = new SteppingSpringLooper();
+    BaseSpringSystem deferredSpringSystem = new BaseSpringSystem(deferredLooper);
+    deferredSprings = Springs.createOscillating(deferredSpringSystem, vectorLength);
+    deferredSpring = new CompositeReboundSpring(deferredSprings);
+    deferredSpring.addListener(listener);
+  }
+
+  @Benchmark
+  public void aggregate() {
+    for (int i = 0; i < vectorLength; i++) {
+      tracker.listeners[i].onSpringUpdate(springs[i]);
+    }
+    tracker.systemListener.onAfterIntegrate(springSystem);
+  }
+
+  @Benchmark
+  public void frame() {
+    if (compositeSpring.isAtRest()) {
+      Springs.restart(springs);
+    }
+    looper.step(SteppingSpringLooper.DEFAULT_FRAME_MILLIS);
+  }
+
+  @Benchmark
+  public void deferredFrame() {
+    if (deferredSpring.isAtRest()) {
+      Springs.restart(deferredSprings);
+    }
+    deferredLooper.step(SteppingSpringLooper.DEFAULT_FRAME_MILLIS);
+    android.os.Handler.runPending();
+  }
+
+  private final CompositeSpringListener listener = new CompositeSpringListener() {
+    @Override
+    public void onCompositeSpringActivate() {
+    }
+
+    @Override
+    public void onCompositeSpringUpdate(float[] values, ComponentMask updated) {
+      blackhole.consume(values);
+    }
+
+    @Override
+    public void onCompositeSpringAtRest() {
+    }
+  };
+}
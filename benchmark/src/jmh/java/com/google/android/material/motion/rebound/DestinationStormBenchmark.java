@@ -0,0 +1,84 @@
+/*
+ * Copyright 2017-present The Material Motion Authors. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.material.motion.rebound;
+
+import com.facebook.rebound.BaseSpringSystem;
+import com.facebook.rebound.Spring;
+import com.google.android.material.motion.rebound.CompositeReboundSpring.CompositeSpringListener;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures a frame in which the destination of a composite spring changes several times, as it
+ * does while dragging: every write moves the end value of each individual spring.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class DestinationStormBenchmark {
+
+  private static final int VECTOR_LENGTH = 2;
+
+  @Param({"1", "4", "16"})
+  public int writesPerFrame;
+
+  private SteppingSpringLooper looper;
+  private Spring[] springs;
+  private int frame;
+
+  @Setup
+  public void setUp(final Blackhole blackhole) {
+    looper = new SteppingSpringLooper();
+    BaseSpringSystem springSystem = new BaseSpringSystem(looper);
+    springs = Springs.createOscillating(springSystem, VECTOR_LENGTH);
+    CompositeReboundSpring compositeSpring = new CompositeReboundSpring(springSystem, springs);
+    compositeSpring.addListener(new CompositeSpringListener() {
+      @Override
+      public void onCompositeSpringActivate() {
+      }
+
+      @Override
+      public void onCompositeSpringUpdate(float[] values, ComponentMask updated) {
+        blackhole.consume(values);
+      }
+
+      @Override
+      public void onCompositeSpringAtRest() {
+      }
+    });
+  }
+
+  @Benchmark
+  public void frame() {
+    frame++;
+    for (int write = 0; write < writesPerFrame; write++) {
+      for (int i = 0; i < VECTOR_LENGTH; i++) {
+        springs[i].setEndValue(frame + write + i);
+      }
+    }
+    looper.step(SteppingSpringLooper.DEFAULT_FRAME_MILLIS);
+  }
+}
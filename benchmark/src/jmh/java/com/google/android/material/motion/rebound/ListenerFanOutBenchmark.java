@@ -0,0 +1,83 @@
+/*
+ * Copyright 2017-present The Material Motion Authors. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.material.motion.rebound;
+
+import com.facebook.rebound.BaseSpringSystem;
+import com.facebook.rebound.Spring;
+import com.google.android.material.motion.rebound.CompositeReboundSpring.CompositeSpringListener;
+import com.google.android.material.motion.rebound.CompositeReboundSpring.SpringTracker;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the cost of publishing one aggregate update to a growing number of listeners.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ListenerFanOutBenchmark {
+
+  private static final int VECTOR_LENGTH = 2;
+
+  @Param({"1", "8", "64"})
+  public int listenerCount;
+
+  private BaseSpringSystem springSystem;
+  private Spring[] springs;
+  private SpringTracker tracker;
+
+  @Setup
+  public void setUp(final Blackhole blackhole) {
+    springSystem = new BaseSpringSystem(new SteppingSpringLooper());
+    springs = Springs.createOscillating(springSystem, VECTOR_LENGTH);
+    CompositeReboundSpring compositeSpring = new CompositeReboundSpring(springSystem, springs);
+    for (int i = 0; i < listenerCount; i++) {
+      compositeSpring.addListener(new CompositeSpringListener() {
+        @Override
+        public void onCompositeSpringActivate() {
+        }
+
+        @Override
+        public void onCompositeSpringUpdate(float[] values, ComponentMask updated) {
+          blackhole.consume(values[0]);
+        }
+
+        @Override
+        public void onCompositeSpringAtRest() {
+        }
+      });
+    }
+    tracker = compositeSpring.tracker;
+  }
+
+  @Benchmark
+  public void dispatch() {
+    for (int i = 0; i < VECTOR_LENGTH; i++) {
+      tracker.listeners[i].onSpringUpdate(springs[i]);
+    }
+    tracker.systemListener.onAfterIntegrate(springSystem);
+  }
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright 2017-present The Material Motion Authors. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.material.motion.rebound;
+
+import com.google.android.material.motion.MotionObserver;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the cost of fanning one composed value out to a growing number of source observers,
+ * through an {@link ObserverList} and through the list iteration it replaced.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ObserverFanOutBenchmark {
+
+  @Param({"1", "8", "64"})
+  public int observerCount;
+
+  private final Float value = 1f;
+  private final ObserverList<Float> observerList = new ObserverList<>();
+  private final List<MotionObserver<Float>> arrayList = new ArrayList<>();
+
+  @Setup
+  public void setUp(final Blackhole blackhole) {
+    for (int i = 0; i < observerCount; i++) {
+      MotionObserver<Float> observer = new MotionObserver<Float>() {
+        @Override
+        public void next(Float value) {
+          blackhole.consume(value);
+        }
+      };
+      observerList.add(observer);
+      arrayList.add(observer);
+    }
+  }
+
+  @Benchmark
+  public void observerList() {
+    observerList.next(value);
+  }
+
+  @Benchmark
+  public void arrayList() {
+    for (MotionObserver<Float> observer : arrayList) {
+      observer.next(value);
+    }
+  }
+}
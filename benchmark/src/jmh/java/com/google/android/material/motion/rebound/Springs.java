@@ -0,0 +1,55 @@
+/*
+ * Copyright 2017-present The Material Motion Authors. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.material.motion.rebound;
+
+import com.facebook.rebound.BaseSpringSystem;
+import com.facebook.rebound.Spring;
+import com.facebook.rebound.SpringConfig;
+
+/**
+ * Creates springs for the benchmarks.
+ */
+final class Springs {
+
+  /**
+   * An undamped config. Springs using it oscillate for hundreds of thousands of frames before the
+   * solver's numerical damping brings them to rest.
+   */
+  static final SpringConfig UNDAMPED = new SpringConfig(200, 0);
+
+  static Spring[] createOscillating(BaseSpringSystem springSystem, int count) {
+    Spring[] springs = new Spring[count];
+    for (int i = 0; i < count; i++) {
+      springs[i] = springSystem.createSpring();
+      springs[i].setSpringConfig(UNDAMPED);
+      springs[i].setEndValue(100 + i);
+    }
+    return springs;
+  }
+
+  /**
+   * Sends the springs back to where they started from, so that a benchmark keeps measuring moving
+   * springs however many frames it runs.
+   */
+  static void restart(Spring[] springs) {
+    for (int i = 0; i < springs.length; i++) {
+      springs[i].setEndValue(springs[i].getEndValue() == 0 ? 100 + i : 0);
+    }
+  }
+
+  private Springs() {
+  }
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright 2017-present The Material Motion Authors. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package android.os;
+
+import java.util.ArrayDeque;
+
+/**
+ * A JVM shim of Android's Handler. Posted runnables are queued per thread and run by
+ * {@link #runPending()}, which stands in for the thread's message loop.
+ */
+public class Handler {
+
+  private static final ThreadLocal<ArrayDeque<Runnable>> QUEUE =
+    new ThreadLocal<ArrayDeque<Runnable>>() {
+      @Override
+      protected ArrayDeque<Runnable> initialValue() {
+        return new ArrayDeque<>();
+      }
+    };
+
+  /**
+   * Runs every runnable that was posted on the current thread, in order.
+   */
+  public static void runPending() {
+    ArrayDeque<Runnable> queue = QUEUE.get();
+    Runnable runnable;
+    while ((runnable = queue.poll()) != null) {
+      runnable.run();
+    }
+  }
+
+  private final ArrayDeque<Runnable> queue = QUEUE.get();
+
+  public final boolean post(Runnable runnable) {
+    queue.add(runnable);
+    return true;
+  }
+
+  public final boolean postDelayed(Runnable runnable, long delayMillis) {
+    return post(runnable);
+  }
+
+  public final void removeCallbacks(Runnable runnable) {
+    while (queue.remove(runnable)) {
+      // Remove every occurrence.
+    }
+  }
+}
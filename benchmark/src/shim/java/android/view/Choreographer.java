@@ -0,0 +1,39 @@
+/*
+ * Copyright 2017-present The Material Motion Authors. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package android.view;
+
+/**
+ * A JVM shim of Android's Choreographer. There are no display frames on the JVM, so benchmarks
+ * must step their spring systems with a synthetic looper instead.
+ */
+public final class Choreographer {
+
+  public interface FrameCallback {
+    void doFrame(long frameTimeNanos);
+  }
+
+  public static Choreographer getInstance() {
+    throw new UnsupportedOperationException("No display frames on the JVM.");
+  }
+
+  public void postFrameCallback(FrameCallback callback) {
+    throw new UnsupportedOperationException("No display frames on the JVM.");
+  }
+
+  public void removeFrameCallback(FrameCallback callback) {
+    throw new UnsupportedOperationException("No display frames on the JVM.");
+  }
+}
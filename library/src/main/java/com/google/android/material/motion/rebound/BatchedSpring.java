@@ -0,0 +1,193 @@
+/*
+ * Copyright 2017-present The Material Motion Authors. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.material.motion.rebound;
+
+import com.google.android.material.motion.rebound.CompositeReboundSpring.CompositeSpringListener;
+
+/**
+ * A vector-valued spring whose components are integrated together by a
+ * {@link BatchedSpringSystem}.
+ * <p>
+ * A batched spring behaves like a {@link CompositeReboundSpring} over one rebound spring per
+ * component, and reports the same aggregate state changes to its listener, but its components
+ * share a single spring config and are stepped in the system's single pass.
+ */
+public final class BatchedSpring {
+
+  private final BatchedSpringSystem springSystem;
+  final int offset;
+  final int length;
+
+  private final float[] currentValues;
+  private final ComponentMask updatedComponents;
+  private final boolean[] currentAtRestStates;
+  private int activeCount;
+  private boolean wasAtRest = true;
+  private boolean updated;
+
+  /**
+   * Whether the system has applied events to this spring that it has not published yet.
+   */
+  boolean dirty;
+
+  private CompositeSpringListener listener;
+  private boolean destroyed;
+
+  BatchedSpring(BatchedSpringSystem springSystem, int offset, int length) {
+    this.springSystem = springSystem;
+    this.offset = offset;
+    this.length = length;
+
+    this.currentValues = new float[length];
+    this.updatedComponents = new ComponentMask(length);
+    this.currentAtRestStates = new boolean[length];
+    for (int i = 0; i < length; i++) {
+      currentAtRestStates[i] = true;
+    }
+  }
+
+  /**
+   * Sets the listener that is notified of aggregate state changes.
+   */
+  public void setListener(CompositeSpringListener listener) {
+    this.listener = listener;
+  }
+
+  /**
+   * Returns the number of components.
+   */
+  public int getLength() {
+    return length;
+  }
+
+  /**
+   * Sets the tension and friction of every component, in rebound units. See
+   * {@link com.facebook.rebound.OrigamiValueConverter}.
+   */
+  public void setTensionAndFriction(double tension, double friction) {
+    for (int i = 0; i < length; i++) {
+      springSystem.setConfig(offset + i, tension, friction);
+    }
+  }
+
+  /**
+   * Moves every component to the given value and puts it at rest there.
+   */
+  public void setCurrentValues(float[] values) {
+    for (int i = 0; i < length; i++) {
+      springSystem.setCurrentValue(offset + i, values[i]);
+    }
+  }
+
+  /**
+   * Sets the velocity of every component, in units per second.
+   */
+  public void setVelocities(float[] velocities) {
+    for (int i = 0; i < length; i++) {
+      springSystem.setVelocity(offset + i, velocities[i]);
+    }
+  }
+
+  /**
+   * Sets the value that every component is pulled towards.
+   */
+  public void setEndValues(float[] endValues) {
+    for (int i = 0; i < length; i++) {
+      springSystem.setEndValue(offset + i, endValues[i]);
+    }
+  }
+
+  /**
+   * Stops every component where it currently is.
+   */
+  public void setAtRest() {
+    for (int i = 0; i < length; i++) {
+      springSystem.setAtRest(offset + i);
+    }
+  }
+
+  /**
+   * Returns the current values of each component, as of the last published update.
+   */
+  public float[] getCurrentValues() {
+    return currentValues;
+  }
+
+  /**
+   * Returns whether the aggregate state of the spring is at rest, as of the last published update.
+   */
+  public boolean isAtRest() {
+    return activeCount == 0;
+  }
+
+  /**
+   * Releases the spring's slots back to the system. The spring must not be used afterwards.
+   */
+  public void destroy() {
+    if (!destroyed) {
+      destroyed = true;
+      springSystem.destroySpring(this);
+    }
+  }
+
+  /**
+   * Applies the events the system recorded for one of this spring's components since the last
+   * loop, given the component's current position.
+   */
+  void applyEvents(int i, int event, double position) {
+    if ((event & BatchedSpringSystem.EVENT_ACTIVATE) != 0 && currentAtRestStates[i]) {
+      currentAtRestStates[i] = false;
+      activeCount++;
+    }
+    if ((event & BatchedSpringSystem.EVENT_UPDATE) != 0) {
+      currentValues[i] = (float) position;
+      updatedComponents.set(i);
+      updated = true;
+    }
+    if ((event & BatchedSpringSystem.EVENT_AT_REST) != 0 && !currentAtRestStates[i]) {
+      currentAtRestStates[i] = true;
+      activeCount--;
+    }
+  }
+
+  /**
+   * Publishes the aggregate state changes that resulted from the applied events.
+   */
+  void publish() {
+    boolean isAtRest = isAtRest();
+    CompositeSpringListener listener = this.listener;
+    if (listener != null && !destroyed) {
+      if (!isAtRest && wasAtRest) {
+        listener.onCompositeSpringActivate();
+      }
+      if (updated) {
+        listener.onCompositeSpringUpdate(currentValues, updatedComponents);
+      }
+      if (isAtRest && !wasAtRest) {
+        listener.onCompositeSpringAtRest();
+      }
+    }
+    wasAtRest = isAtRest;
+
+    if (updated) {
+      updated = false;
+      for (int i = updatedComponents.nextSetIndex(0); i != -1;
+        i = updatedComponents.nextSetIndex(i + 1)) {
+        updatedComponents.clear(i);
+      }
+    }
+  }
+}
@@ -0,0 +1,170 @@
+/*
+ * Copyright 2017-present The Material Motion Authors. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.material.motion.rebound;
+
+import com.facebook.rebound.OrigamiValueConverter;
+import com.google.android.indefinite.observable.IndefiniteObservable.Subscription;
+import com.google.android.material.motion.MotionObserver;
+import com.google.android.material.motion.MotionObserver.SimpleMotionObserver;
+import com.google.android.material.motion.MotionState;
+import com.google.android.material.motion.interactions.MaterialSpring;
+import com.google.android.material.motion.rebound.CompositeReboundSpring.CompositeSpringListener;
+import com.google.android.material.motion.sources.SpringSource;
+
+/**
+ * A source for batched springs.
+ * <p>
+ * Like {@link ReboundSpringSource}, this source vectorizes T into floats and animates each
+ * component with rebound's spring solver. Instead of one rebound spring per component, all
+ * components are stored in a single {@link BatchedSpring} and integrated by a
+ * {@link BatchedSpringSystem} in one pass together with every other active batched spring.
+ */
+public final class BatchedSpringSource<T> extends SpringSource<T> {
+
+  /**
+   * Creates batched spring sources that share {@link BatchedSpringSystem#getDefault()}.
+   */
+  public static final System SYSTEM = new System() {
+    @Override
+    public <T> SpringSource<T> create(MaterialSpring<?, T> spring) {
+      return new BatchedSpringSource<>(spring, BatchedSpringSystem.getDefault());
+    }
+  };
+
+  /**
+   * Creates batched spring sources that share {@link BatchedSpringSystem#getDefaultAnalytic()},
+   * whose springs follow their closed-form solution instead of being integrated.
+   */
+  public static final System ANALYTIC_SYSTEM = new System() {
+    @Override
+    public <T> SpringSource<T> create(MaterialSpring<?, T> spring) {
+      return new BatchedSpringSource<>(spring, BatchedSpringSystem.getDefaultAnalytic());
+    }
+  };
+
+  /**
+   * Returns a {@link System} that creates batched spring sources in the given spring system.
+   */
+  public static System createSystem(final BatchedSpringSystem springSystem) {
+    return new System() {
+      @Override
+      public <T> SpringSource<T> create(MaterialSpring<?, T> spring) {
+        return new BatchedSpringSource<>(spring, springSystem);
+      }
+    };
+  }
+
+  private final BatchedSpringSystem springSystem;
+  private final MaterialSpring<?, T> interaction;
+
+  private final ObserverList<T> observers = new ObserverList<>();
+  private final ValueComposer<T> composer;
+  private final float[] scratchValues;
+
+  private BatchedSpring spring;
+  private double tension;
+  private double friction;
+
+  private Subscription destinationSubscription;
+  private Subscription frictionSubscription;
+  private Subscription tensionSubscription;
+
+  public BatchedSpringSource(MaterialSpring<?, T> interaction, BatchedSpringSystem springSystem) {
+    super(interaction);
+    this.interaction = interaction;
+    this.springSystem = springSystem;
+    this.composer = new ValueComposer<>(interaction.vectorizer);
+    this.scratchValues = new float[interaction.vectorizer.getVectorLength()];
+  }
+
+  @Override
+  protected void onConnect(MotionObserver<T> observer) {
+    if (observers.isEmpty()) {
+      spring = springSystem.createSpring(interaction.vectorizer.getVectorLength());
+      spring.setListener(dispatcher);
+    }
+
+    observers.add(observer);
+  }
+
+  @Override
+  protected void onEnable(MotionObserver<T> observer) {
+    tensionSubscription = interaction.tension.subscribe(new SimpleMotionObserver<Float>() {
+      @Override
+      public void next(Float value) {
+        tension = OrigamiValueConverter.tensionFromOrigamiValue(value);
+        spring.setTensionAndFriction(tension, friction);
+      }
+    });
+    frictionSubscription = interaction.friction.subscribe(new SimpleMotionObserver<Float>() {
+      @Override
+      public void next(Float value) {
+        friction = OrigamiValueConverter.frictionFromOrigamiValue(value);
+        spring.setTensionAndFriction(tension, friction);
+      }
+    });
+
+    interaction.vectorizer.vectorize(interaction.initialValue.read(), scratchValues);
+    spring.setCurrentValues(scratchValues);
+
+    interaction.vectorizer.vectorize(interaction.initialVelocity.read(), scratchValues);
+    spring.setVelocities(scratchValues);
+
+    destinationSubscription = interaction.destination.subscribe(new SimpleMotionObserver<T>() {
+      @Override
+      public void next(T value) {
+        interaction.vectorizer.vectorize(value, scratchValues);
+        spring.setEndValues(scratchValues);
+      }
+    });
+  }
+
+  @Override
+  protected void onDisable(MotionObserver<T> observer) {
+    tensionSubscription.unsubscribe();
+    frictionSubscription.unsubscribe();
+    destinationSubscription.unsubscribe();
+
+    spring.setAtRest();
+  }
+
+  @Override
+  protected void onDisconnect(MotionObserver<T> observer) {
+    observers.remove(observer);
+
+    if (observers.isEmpty()) {
+      spring.destroy();
+      spring = null;
+    }
+  }
+
+  private final CompositeSpringListener dispatcher = new CompositeSpringListener() {
+    @Override
+    public void onCompositeSpringActivate() {
+      interaction.state.write(MotionState.ACTIVE);
+    }
+
+    @Override
+    public void onCompositeSpringUpdate(float[] values, ComponentMask updated) {
+      observers.next(composer.compose(values));
+    }
+
+    @Override
+    public void onCompositeSpringAtRest() {
+      interaction.state.write(MotionState.AT_REST);
+    }
+  };
+}
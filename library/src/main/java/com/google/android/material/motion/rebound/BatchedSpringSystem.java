@@ -0,0 +1,685 @@
+/*
+ * Copyright 2017-present The Material Motion Authors. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.material.motion.rebound;
+
+import com.facebook.rebound.BaseSpringSystem;
+import com.facebook.rebound.SpringConfig;
+import com.facebook.rebound.SpringLooper;
+
+import java.util.Arrays;
+
+/**
+ * A spring system that integrates every component of every {@link BatchedSpring} in a single
+ * pass over structure-of-arrays buffers.
+ * <p>
+ * Each batched spring owns a contiguous range of slots in the buffers. Once per frame, the system
+ * steps every active slot with the same fixed-timestep RK4 solver as a rebound
+ * {@link com.facebook.rebound.Spring}, then publishes the aggregate state of each batched spring to
+ * its {@link CompositeReboundSpring.CompositeSpringListener}. There are no per-component
+ * listeners and no separate aggregation step.
+ * <p>
+ * Active slots and slots with pending events are kept in dense lists, so a frame costs time
+ * proportional to the number of moving components rather than to the number of allocated ones.
+ * A component whose end value did not change is not woken, and only batched springs with pending
+ * events are published.
+ * <p>
+ * The buffers hold doubles, like rebound's own state, so that a batched spring produces the same
+ * values as the equivalent set of rebound springs.
+ * <p>
+ * With a {@link TrajectoryCache}, components that start moving from rest are replayed from a
+ * precomputed trajectory instead of being integrated. A component falls back to live integration,
+ * from its replayed position and velocity, as soon as its destination, velocity or config changes
+ * mid-flight.
+ * <p>
+ * With the {@link Solver#ANALYTIC} solver, components are not integrated at all. Whenever a
+ * component's state changes, its closed-form solution and the time at which it comes to rest are
+ * computed once. Every frame then evaluates that solution at the elapsed time, which costs the
+ * same however long the frame was and does not accumulate error.
+ * <p>
+ * A batched spring system is not thread safe. It must only be used from the thread its looper
+ * runs on.
+ */
+public final class BatchedSpringSystem {
+
+  static final double SOLVER_TIMESTEP_SEC = 0.001;
+  static final double MAX_DELTA_TIME_SEC = 0.064;
+  static final double DEFAULT_REST_THRESHOLD = 0.005;
+
+  static final int EVENT_ACTIVATE = 1;
+  static final int EVENT_UPDATE = 1 << 1;
+  static final int EVENT_AT_REST = 1 << 2;
+
+  private static final int MIN_CAPACITY = 16;
+
+  private static BatchedSpringSystem defaultSystem;
+  private static BatchedSpringSystem defaultAnalyticSystem;
+
+  /**
+   * Returns the default batched spring system, which loops on the main thread's display frames.
+   * Must be called from the main thread.
+   */
+  public static BatchedSpringSystem getDefault() {
+    if (defaultSystem == null) {
+      defaultSystem = new BatchedSpringSystem(new ChoreographerSpringLooper());
+    }
+    return defaultSystem;
+  }
+
+  /**
+   * Returns the default batched spring system with the {@link Solver#ANALYTIC} solver, which loops
+   * on the main thread's display frames. Must be called from the main thread.
+   */
+  public static BatchedSpringSystem getDefaultAnalytic() {
+    if (defaultAnalyticSystem == null) {
+      defaultAnalyticSystem =
+        new BatchedSpringSystem(new ChoreographerSpringLooper(), Solver.ANALYTIC);
+    }
+    return defaultAnalyticSystem;
+  }
+
+  /**
+   * How a batched spring system moves its components from frame to frame.
+   */
+  public enum Solver {
+    /**
+     * Integrates each component with rebound's fixed-timestep RK4 solver.
+     */
+    NUMERIC,
+    /**
+     * Evaluates each component's closed-form solution at the elapsed time.
+     */
+    ANALYTIC
+  }
+
+  private final SpringLooper looper;
+  private final Solver solver;
+  private final Driver driver;
+  private boolean looping;
+  private boolean activatedDuringLoop;
+  private TrajectoryCache trajectoryCache;
+
+  private int capacity;
+  private boolean[] allocated = new boolean[0];
+
+  double[] position = new double[0];
+  double[] velocity = new double[0];
+  double[] endValue = new double[0];
+  private double[] tempPosition = new double[0];
+  private double[] previousPosition = new double[0];
+  private double[] previousVelocity = new double[0];
+  private double[] timeAccumulator = new double[0];
+  private double[] tension = new double[0];
+  private double[] friction = new double[0];
+  private double[] restSpeedThreshold = new double[0];
+  private double[] restDisplacementThreshold = new double[0];
+  private boolean[] wasAtRest = new boolean[0];
+  int[] events = new int[0];
+
+  /**
+   * The active slots, in no particular order, and the index of each slot in that list or -1 if the
+   * slot is not active.
+   */
+  private int[] activeSlots = new int[0];
+  private int[] activeIndex = new int[0];
+  private int activeCount;
+
+  /**
+   * The slots whose events have not been dispatched yet. A slot is listed when its events go from
+   * none to some. A slot freed and reallocated in the meantime may be listed twice.
+   */
+  private int[] eventSlots = new int[MIN_CAPACITY];
+  private int eventCount;
+
+  private SpringTrajectory[] trajectory = new SpringTrajectory[0];
+  private double[] replayTime = new double[0];
+  private double[] replayOrigin = new double[0];
+  private double[] replayDistance = new double[0];
+
+  private boolean[] stale = new boolean[0];
+  private double[] solutionTime = new double[0];
+  private double[] solutionDisplacement = new double[0];
+  private double[] solutionVelocity = new double[0];
+  private double[] restTime = new double[0];
+
+  /**
+   * The batched spring that owns each slot, or null if the slot is free.
+   */
+  private BatchedSpring[] owners = new BatchedSpring[0];
+  private int springCount;
+  private BatchedSpring[] dirtySprings = new BatchedSpring[0];
+
+  /**
+   * Creates a batched spring system that is looped by the given looper, with the
+   * {@link Solver#NUMERIC} solver.
+   */
+  public BatchedSpringSystem(SpringLooper looper) {
+    this(looper, Solver.NUMERIC);
+  }
+
+  /**
+   * Creates a batched spring system that is looped by the given looper, with the given solver.
+   */
+  public BatchedSpringSystem(SpringLooper looper, Solver solver) {
+    this.looper = looper;
+    this.solver = solver;
+    this.driver = new Driver(looper, this);
+  }
+
+  /**
+   * Creates a new batched spring with the given number of components. The spring starts at rest
+   * at zero, with rebound's default spring config.
+   */
+  public BatchedSpring createSpring(int length) {
+    int offset = allocateSlots(length);
+    BatchedSpring spring = new BatchedSpring(this, offset, length);
+    for (int i = offset; i < offset + length; i++) {
+      owners[i] = spring;
+    }
+
+    springCount++;
+    if (dirtySprings.length < springCount) {
+      dirtySprings = new BatchedSpring[Math.max(MIN_CAPACITY, springCount * 2)];
+    }
+
+    return spring;
+  }
+
+  /**
+   * Sets the cache of trajectories that components starting from rest are replayed from, or null
+   * to always integrate. Components that are already moving are not affected. Ignored by the
+   * {@link Solver#ANALYTIC} solver.
+   */
+  public void setTrajectoryCache(TrajectoryCache trajectoryCache) {
+    this.trajectoryCache = trajectoryCache;
+  }
+
+  /**
+   * Returns whether no component of any batched spring is being integrated.
+   */
+  public boolean isIdle() {
+    return !looping;
+  }
+
+  void destroySpring(BatchedSpring spring) {
+    if (owners[spring.offset] != spring) {
+      return;
+    }
+    springCount--;
+
+    for (int i = spring.offset, end = spring.offset + spring.length; i < end; i++) {
+      allocated[i] = false;
+      owners[i] = null;
+      deactivate(i);
+      events[i] = 0;
+      trajectory[i] = null;
+    }
+  }
+
+  void setConfig(int slot, double tension, double friction) {
+    invalidate(slot);
+    this.tension[slot] = tension;
+    this.friction[slot] = friction;
+  }
+
+  void setCurrentValue(int slot, double value) {
+    invalidate(slot);
+    position[slot] = value;
+    activate(slot);
+    postEvents(slot, EVENT_UPDATE);
+    setAtRest(slot);
+  }
+
+  void setVelocity(int slot, double velocity) {
+    if (velocity == this.velocity[slot]) {
+      return;
+    }
+    invalidate(slot);
+    this.velocity[slot] = velocity;
+    activate(slot);
+  }
+
+  void setEndValue(int slot, double endValue) {
+    if (endValue == this.endValue[slot]) {
+      // Either at rest already, or active and already moving towards it.
+      return;
+    }
+    invalidate(slot);
+    this.endValue[slot] = endValue;
+    if (solver == Solver.NUMERIC && trajectoryCache != null && wasAtRest[slot]) {
+      startReplay(slot);
+    }
+    activate(slot);
+  }
+
+  void setAtRest(int slot) {
+    invalidate(slot);
+    endValue[slot] = position[slot];
+    tempPosition[slot] = position[slot];
+    velocity[slot] = 0;
+  }
+
+  boolean isAtRest(int slot) {
+    return Math.abs(velocity[slot]) <= restSpeedThreshold[slot]
+      && (Math.abs(endValue[slot] - position[slot]) <= restDisplacementThreshold[slot]
+      || tension[slot] == 0);
+  }
+
+  /**
+   * Called before the slot's state is changed. Stops any replay, and has the analytic solver
+   * solve the slot again from its new state on the next frame.
+   */
+  private void invalidate(int slot) {
+    stopReplay(slot);
+    stale[slot] = true;
+  }
+
+  /**
+   * Replays the slot's transition from its current position to its end value from the trajectory
+   * cache, if the cache has a trajectory for it.
+   */
+  private void startReplay(int slot) {
+    double distance = endValue[slot] - position[slot];
+    if (distance == 0) {
+      return;
+    }
+    SpringTrajectory trajectory =
+      trajectoryCache.get(tension[slot], friction[slot], velocity[slot] / distance);
+    if (trajectory == null) {
+      return;
+    }
+
+    this.trajectory[slot] = trajectory;
+    replayTime[slot] = 0;
+    replayOrigin[slot] = position[slot];
+    replayDistance[slot] = distance;
+  }
+
+  /**
+   * Stops replaying the slot, so that it is integrated from its current position and velocity.
+   */
+  private void stopReplay(int slot) {
+    if (trajectory[slot] == null) {
+      return;
+    }
+    trajectory[slot] = null;
+    tempPosition[slot] = position[slot];
+    previousPosition[slot] = position[slot];
+    previousVelocity[slot] = velocity[slot];
+    timeAccumulator[slot] = 0;
+  }
+
+  private void activate(int slot) {
+    if (activeIndex[slot] == -1) {
+      activeIndex[slot] = activeCount;
+      activeSlots[activeCount++] = slot;
+    }
+    activatedDuringLoop = true;
+    if (!looping) {
+      looping = true;
+      looper.start();
+    }
+  }
+
+  /**
+   * Removes the slot from the active slots, moving the last active slot into its place.
+   */
+  private void deactivate(int slot) {
+    int index = activeIndex[slot];
+    if (index == -1) {
+      return;
+    }
+    int last = activeSlots[--activeCount];
+    activeSlots[index] = last;
+    activeIndex[last] = index;
+    activeIndex[slot] = -1;
+  }
+
+  private void postEvents(int slot, int event) {
+    if (events[slot] == 0) {
+      if (eventCount == eventSlots.length) {
+        eventSlots = Arrays.copyOf(eventSlots, eventCount * 2);
+      }
+      eventSlots[eventCount++] = slot;
+    }
+    events[slot] |= event;
+  }
+
+  /**
+   * Steps every active slot, then publishes the aggregate state of every batched spring that has
+   * pending events.
+   */
+  private void loop(double elapsedMillis) {
+    double deltaTime = elapsedMillis / 1000.0;
+    activatedDuringLoop = false;
+
+    boolean anyActive = false;
+    for (int n = 0; n < activeCount; ) {
+      int i = activeSlots[n];
+      if (wasAtRest[i] && isAtRest(i)) {
+        // The last active slot moves into position n, and is stepped next.
+        deactivate(i);
+        trajectory[i] = null;
+        continue;
+      }
+      n++;
+
+      if (solver == Solver.ANALYTIC) {
+        solve(i, deltaTime);
+      } else if (trajectory[i] != null) {
+        replay(i, deltaTime);
+      } else {
+        advance(i, deltaTime);
+      }
+      anyActive = true;
+    }
+
+    dispatch();
+
+    if (!anyActive && !activatedDuringLoop) {
+      looping = false;
+      looper.stop();
+    }
+  }
+
+  /**
+   * Advances a single slot. This mirrors {@link com.facebook.rebound.Spring}'s solver, including
+   * its fixed timestep, its maximum frame delta and its interpolation of the remainder.
+   */
+  private void advance(int i, double realDeltaTime) {
+    boolean isAtRest = isAtRest(i);
+
+    double adjustedDeltaTime = Math.min(realDeltaTime, MAX_DELTA_TIME_SEC);
+    double accumulator = timeAccumulator[i] + adjustedDeltaTime;
+
+    double tension = this.tension[i];
+    double friction = this.friction[i];
+    double endValue = this.endValue[i];
+
+    double position = this.position[i];
+    double velocity = this.velocity[i];
+    double tempPosition = this.tempPosition[i];
+    double previousPosition = this.previousPosition[i];
+    double previousVelocity = this.previousVelocity[i];
+
+    while (accumulator >= SOLVER_TIMESTEP_SEC) {
+      accumulator -= SOLVER_TIMESTEP_SEC;
+
+      if (accumulator < SOLVER_TIMESTEP_SEC) {
+        previousPosition = position;
+        previousVelocity = velocity;
+      }
+
+      double aVelocity = velocity;
+      double aAcceleration = (tension * (endValue - tempPosition)) - friction * velocity;
+
+      tempPosition = position + aVelocity * SOLVER_TIMESTEP_SEC * 0.5;
+      double tempVelocity = velocity + aAcceleration * SOLVER_TIMESTEP_SEC * 0.5;
+      double bVelocity = tempVelocity;
+      double bAcceleration = (tension * (endValue - tempPosition)) - friction * tempVelocity;
+
+      tempPosition = position + bVelocity * SOLVER_TIMESTEP_SEC * 0.5;
+      tempVelocity = velocity + bAcceleration * SOLVER_TIMESTEP_SEC * 0.5;
+      double cVelocity = tempVelocity;
+      double cAcceleration = (tension * (endValue - tempPosition)) - friction * tempVelocity;
+
+      tempPosition = position + cVelocity * SOLVER_TIMESTEP_SEC;
+      tempVelocity = velocity + cAcceleration * SOLVER_TIMESTEP_SEC;
+      double dVelocity = tempVelocity;
+      double dAcceleration = (tension * (endValue - tempPosition)) - friction * tempVelocity;
+
+      double dxdt = 1.0 / 6.0 * (aVelocity + 2.0 * (bVelocity + cVelocity) + dVelocity);
+      double dvdt =
+        1.0 / 6.0 * (aAcceleration + 2.0 * (bAcceleration + cAcceleration) + dAcceleration);
+
+      position += dxdt * SOLVER_TIMESTEP_SEC;
+      velocity += dvdt * SOLVER_TIMESTEP_SEC;
+    }
+
+    if (accumulator > 0) {
+      double alpha = accumulator / SOLVER_TIMESTEP_SEC;
+      position = position * alpha + previousPosition * (1 - alpha);
+      velocity = velocity * alpha + previousVelocity * (1 - alpha);
+    }
+
+    this.timeAccumulator[i] = accumulator;
+    this.tempPosition[i] = tempPosition;
+    this.previousPosition[i] = previousPosition;
+    this.previousVelocity[i] = previousVelocity;
+    this.position[i] = position;
+    this.velocity[i] = velocity;
+
+    if (isAtRest(i)) {
+      if (tension > 0) {
+        this.position[i] = endValue;
+      } else {
+        this.endValue[i] = position;
+      }
+      this.velocity[i] = 0;
+      isAtRest = true;
+    }
+
+    recordEvents(i, isAtRest);
+  }
+
+  /**
+   * Advances a single slot along its cached trajectory.
+   */
+  private void replay(int i, double realDeltaTime) {
+    SpringTrajectory trajectory = this.trajectory[i];
+    double time = replayTime[i] + Math.min(realDeltaTime, MAX_DELTA_TIME_SEC);
+    replayTime[i] = time;
+
+    position[i] = replayOrigin[i] + replayDistance[i] * trajectory.getPosition(time);
+    velocity[i] = replayDistance[i] * trajectory.getVelocity(time);
+
+    boolean isAtRest = time >= trajectory.getDuration() || isAtRest(i);
+    if (isAtRest) {
+      position[i] = endValue[i];
+      velocity[i] = 0;
+      stopReplay(i);
+    }
+
+    recordEvents(i, isAtRest);
+  }
+
+  /**
+   * Advances a single slot by evaluating its closed-form solution. The solution is recomputed from
+   * the slot's current state if that state changed since the last frame.
+   */
+  private void solve(int i, double realDeltaTime) {
+    double tension = this.tension[i];
+    double friction = this.friction[i];
+
+    if (stale[i]) {
+      stale[i] = false;
+      solutionTime[i] = 0;
+      solutionDisplacement[i] = position[i] - endValue[i];
+      solutionVelocity[i] = velocity[i];
+      restTime[i] = SpringMath.restTime(
+        tension, friction, solutionDisplacement[i], solutionVelocity[i],
+        restDisplacementThreshold[i], restSpeedThreshold[i]);
+    }
+
+    double time = solutionTime[i] + realDeltaTime;
+    solutionTime[i] = time;
+
+    double x0 = solutionDisplacement[i];
+    double v0 = solutionVelocity[i];
+    position[i] = endValue[i] + SpringMath.displacement(tension, friction, x0, v0, time);
+    velocity[i] = SpringMath.velocity(tension, friction, x0, v0, time);
+
+    boolean isAtRest = time >= restTime[i] || isAtRest(i);
+    if (isAtRest) {
+      if (tension > 0) {
+        position[i] = endValue[i];
+      } else {
+        endValue[i] = position[i];
+      }
+      velocity[i] = 0;
+      stale[i] = true;
+    }
+
+    recordEvents(i, isAtRest);
+  }
+
+  /**
+   * Applies the pending events to the batched springs that own their slots, then publishes each of
+   * those springs once. Events posted by their listeners are dispatched in the next loop.
+   */
+  private void dispatch() {
+    int[] eventSlots = this.eventSlots;
+    int eventCount = this.eventCount;
+    this.eventCount = 0;
+
+    BatchedSpring[] dirtySprings = this.dirtySprings;
+    int dirtyCount = 0;
+    for (int n = 0; n < eventCount; n++) {
+      int slot = eventSlots[n];
+      int event = events[slot];
+      if (event == 0) {
+        continue;
+      }
+      events[slot] = 0;
+
+      BatchedSpring spring = owners[slot];
+      if (!spring.dirty) {
+        spring.dirty = true;
+        dirtySprings[dirtyCount++] = spring;
+      }
+      spring.applyEvents(slot - spring.offset, event, position[slot]);
+    }
+
+    for (int n = 0; n < dirtyCount; n++) {
+      BatchedSpring spring = dirtySprings[n];
+      dirtySprings[n] = null;
+      spring.dirty = false;
+      spring.publish();
+    }
+  }
+
+  private void recordEvents(int i, boolean isAtRest) {
+    int event = EVENT_UPDATE;
+    if (wasAtRest[i]) {
+      wasAtRest[i] = false;
+      event |= EVENT_ACTIVATE;
+    }
+    if (isAtRest) {
+      wasAtRest[i] = true;
+      event |= EVENT_AT_REST;
+    }
+    postEvents(i, event);
+  }
+
+  /**
+   * Finds a contiguous range of free slots, growing the buffers if needed, and resets it.
+   */
+  private int allocateSlots(int length) {
+    int offset = -1;
+    for (int i = 0, run = 0; i < capacity; i++) {
+      run = allocated[i] ? 0 : run + 1;
+      if (run == length) {
+        offset = i - length + 1;
+        break;
+      }
+    }
+
+    if (offset == -1) {
+      int free = 0;
+      while (free < capacity && !allocated[capacity - 1 - free]) {
+        free++;
+      }
+      offset = capacity - free;
+      grow(Math.max(Math.max(MIN_CAPACITY, capacity * 2), offset + length));
+    }
+
+    SpringConfig config = SpringConfig.defaultConfig;
+    for (int i = offset; i < offset + length; i++) {
+      allocated[i] = true;
+      position[i] = 0;
+      velocity[i] = 0;
+      endValue[i] = 0;
+      tempPosition[i] = 0;
+      previousPosition[i] = 0;
+      previousVelocity[i] = 0;
+      timeAccumulator[i] = 0;
+      tension[i] = config.tension;
+      friction[i] = config.friction;
+      restSpeedThreshold[i] = DEFAULT_REST_THRESHOLD;
+      restDisplacementThreshold[i] = DEFAULT_REST_THRESHOLD;
+      wasAtRest[i] = true;
+      activeIndex[i] = -1;
+      events[i] = 0;
+      trajectory[i] = null;
+      stale[i] = true;
+    }
+    return offset;
+  }
+
+  private void grow(int newCapacity) {
+    allocated = Arrays.copyOf(allocated, newCapacity);
+    position = Arrays.copyOf(position, newCapacity);
+    velocity = Arrays.copyOf(velocity, newCapacity);
+    endValue = Arrays.copyOf(endValue, newCapacity);
+    tempPosition = Arrays.copyOf(tempPosition, newCapacity);
+    previousPosition = Arrays.copyOf(previousPosition, newCapacity);
+    previousVelocity = Arrays.copyOf(previousVelocity, newCapacity);
+    timeAccumulator = Arrays.copyOf(timeAccumulator, newCapacity);
+    tension = Arrays.copyOf(tension, newCapacity);
+    friction = Arrays.copyOf(friction, newCapacity);
+    restSpeedThreshold = Arrays.copyOf(restSpeedThreshold, newCapacity);
+    restDisplacementThreshold = Arrays.copyOf(restDisplacementThreshold, newCapacity);
+    wasAtRest = Arrays.copyOf(wasAtRest, newCapacity);
+    events = Arrays.copyOf(events, newCapacity);
+    activeSlots = Arrays.copyOf(activeSlots, newCapacity);
+    activeIndex = Arrays.copyOf(activeIndex, newCapacity);
+    Arrays.fill(activeIndex, capacity, newCapacity, -1);
+    owners = Arrays.copyOf(owners, newCapacity);
+    trajectory = Arrays.copyOf(trajectory, newCapacity);
+    replayTime = Arrays.copyOf(replayTime, newCapacity);
+    replayOrigin = Arrays.copyOf(replayOrigin, newCapacity);
+    replayDistance = Arrays.copyOf(replayDistance, newCapacity);
+    stale = Arrays.copyOf(stale, newCapacity);
+    solutionTime = Arrays.copyOf(solutionTime, newCapacity);
+    solutionDisplacement = Arrays.copyOf(solutionDisplacement, newCapacity);
+    solutionVelocity = Arrays.copyOf(solutionVelocity, newCapacity);
+    restTime = Arrays.copyOf(restTime, newCapacity);
+    capacity = newCapacity;
+  }
+
+  /**
+   * Adapts a {@link SpringLooper}, which can only loop a {@link BaseSpringSystem}, to loop a
+   * batched spring system instead. No rebound springs are ever created in it.
+   */
+  private static final class Driver extends BaseSpringSystem {
+
+    private final BatchedSpringSystem batchedSpringSystem;
+
+    private Driver(SpringLooper looper, BatchedSpringSystem batchedSpringSystem) {
+      super(looper);
+      this.batchedSpringSystem = batchedSpringSystem;
+    }
+
+    @Override
+    public boolean getIsIdle() {
+      return batchedSpringSystem.isIdle();
+    }
+
+    @Override
+    public void loop(double ellapsedMillis) {
+      batchedSpringSystem.loop(ellapsedMillis);
+    }
+  }
+}
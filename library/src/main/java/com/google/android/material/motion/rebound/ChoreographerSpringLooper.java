@@ -0,0 +1,218 @@
+/*
+ * Copyright 2017-present The Material Motion Authors. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.material.motion.rebound;
+
+import android.os.Handler;
+import android.support.annotation.VisibleForTesting;
+import android.view.Choreographer;
+
+import com.facebook.rebound.SpringLooper;
+
+import java.util.Arrays;
+
+/**
+ * A spring looper that loops its spring system once per display frame.
+ * <p>
+ * Unlike rebound's own Android looper, this looper is bound to the {@link Choreographer} of the
+ * thread it was created on, and measures elapsed time between vsync timestamps. It must be created
+ * on a thread with a {@link android.os.Looper}. Below Jelly Bean, frames are approximated with a
+ * {@link Handler}.
+ * <p>
+ * The looper estimates the display's frame interval from recent frame timestamps, so it adapts to
+ * 90 and 120 Hz displays. A frame never integrates more than a {@link #setCatchUpBudget(int)
+ * budget} of frame intervals: after a long pause, such as a garbage collection, the extra time is
+ * dropped instead of being integrated in a single burst, and the clamp is reported to the
+ * {@link ClampListener}. With {@link #setAdaptiveStepping(boolean) adaptive stepping}, each frame
+ * additionally integrates a whole number of frame intervals, carrying the timestamp jitter over
+ * to later frames instead of passing it on to the springs.
+ */
+public final class ChoreographerSpringLooper extends SpringLooper {
+
+  /**
+   * The default maximum number of frame intervals integrated in a single frame.
+   */
+  public static final int DEFAULT_CATCH_UP_BUDGET = 4;
+
+  private static final long DEFAULT_FRAME_NANOS = 1000000000L / 60;
+  private static final int FRAME_INTERVAL_SAMPLES = 8;
+  private static final double NANOS_PER_MILLI = 1000000.0;
+
+  private final FrameScheduler scheduler;
+
+  private boolean started;
+  private boolean hasLastFrame;
+  private long lastFrameTimeNanos;
+
+  /**
+   * The most recent frame intervals. Their median is the estimate of the display's frame interval,
+   * which neither occasional dropped frames nor timestamp jitter can skew, and which follows
+   * refresh rate changes within a few frames.
+   */
+  private final long[] frameIntervals = new long[FRAME_INTERVAL_SAMPLES];
+  private final long[] sortedFrameIntervals = new long[FRAME_INTERVAL_SAMPLES];
+  private int frameIntervalIndex;
+  private int frameIntervalCount;
+  private long estimatedFrameNanos = DEFAULT_FRAME_NANOS;
+
+  private boolean adaptiveStepping;
+  private int catchUpBudget = DEFAULT_CATCH_UP_BUDGET;
+  private double residualMillis;
+  private long clampedFrameCount;
+  private ClampListener clampListener;
+
+  /**
+   * Creates a looper bound to the current thread.
+   */
+  public ChoreographerSpringLooper() {
+    scheduler = FrameScheduler.create(new FrameScheduler.Callback() {
+      @Override
+      public void doFrame(long frameTimeNanos) {
+        ChoreographerSpringLooper.this.doFrame(frameTimeNanos);
+      }
+    });
+  }
+
+  /**
+   * Sets whether each frame integrates a whole number of estimated frame intervals rather than the
+   * exact time between frame timestamps. Defaults to false.
+   */
+  public void setAdaptiveStepping(boolean adaptiveStepping) {
+    this.adaptiveStepping = adaptiveStepping;
+    residualMillis = 0;
+  }
+
+  /**
+   * Sets the maximum number of estimated frame intervals integrated in a single frame. Defaults to
+   * {@link #DEFAULT_CATCH_UP_BUDGET}.
+   */
+  public void setCatchUpBudget(int frames) {
+    if (frames < 1) {
+      throw new IllegalArgumentException("The catch-up budget must be at least one frame.");
+    }
+    this.catchUpBudget = frames;
+  }
+
+  /**
+   * Sets the listener that is notified when a frame is clamped to the catch-up budget, or null.
+   */
+  public void setClampListener(ClampListener clampListener) {
+    this.clampListener = clampListener;
+  }
+
+  /**
+   * Returns the estimated interval between display frames, in milliseconds.
+   */
+  public double getEstimatedFrameMillis() {
+    return estimatedFrameNanos / NANOS_PER_MILLI;
+  }
+
+  /**
+   * Returns the number of frames that were clamped to the catch-up budget since the looper was
+   * created.
+   */
+  public long getClampedFrameCount() {
+    return clampedFrameCount;
+  }
+
+  @Override
+  public void start() {
+    if (started) {
+      return;
+    }
+    started = true;
+    hasLastFrame = false;
+    scheduler.postFrame();
+  }
+
+  @Override
+  public void stop() {
+    started = false;
+    scheduler.removeFrame();
+  }
+
+  @VisibleForTesting
+  void doFrame(long frameTimeNanos) {
+    if (!started) {
+      return;
+    }
+
+    if (hasLastFrame) {
+      long elapsedNanos = Math.max(0, frameTimeNanos - lastFrameTimeNanos);
+      lastFrameTimeNanos = frameTimeNanos;
+      recordFrameInterval(elapsedNanos);
+      mSpringSystem.loop(getStepMillis(elapsedNanos / NANOS_PER_MILLI));
+    } else {
+      // The first frame after starting has no previous frame timestamp to be measured from, so it
+      // integrates one estimated frame interval.
+      lastFrameTimeNanos = frameTimeNanos;
+      hasLastFrame = true;
+      mSpringSystem.loop(getEstimatedFrameMillis());
+    }
+
+    if (started) {
+      scheduler.postFrame();
+    }
+  }
+
+  private void recordFrameInterval(long intervalNanos) {
+    if (intervalNanos <= 0) {
+      return;
+    }
+    frameIntervals[frameIntervalIndex] = intervalNanos;
+    frameIntervalIndex = (frameIntervalIndex + 1) % FRAME_INTERVAL_SAMPLES;
+    frameIntervalCount = Math.min(frameIntervalCount + 1, FRAME_INTERVAL_SAMPLES);
+
+    System.arraycopy(frameIntervals, 0, sortedFrameIntervals, 0, frameIntervalCount);
+    Arrays.sort(sortedFrameIntervals, 0, frameIntervalCount);
+    estimatedFrameNanos = sortedFrameIntervals[(frameIntervalCount - 1) / 2];
+  }
+
+  /**
+   * Returns the time to integrate for a frame that is the given time after the previous frame.
+   */
+  private double getStepMillis(double elapsedMillis) {
+    double frameMillis = getEstimatedFrameMillis();
+
+    double stepMillis = elapsedMillis;
+    if (adaptiveStepping) {
+      long frames = Math.max(1, Math.round((elapsedMillis + residualMillis) / frameMillis));
+      stepMillis = frames * frameMillis;
+      residualMillis += elapsedMillis - stepMillis;
+    }
+
+    double budgetMillis = catchUpBudget * frameMillis;
+    if (stepMillis > budgetMillis) {
+      clampedFrameCount++;
+      residualMillis = 0;
+      if (clampListener != null) {
+        clampListener.onFrameClamped(elapsedMillis, budgetMillis);
+      }
+      stepMillis = budgetMillis;
+    }
+    return stepMillis;
+  }
+
+  /**
+   * A listener for frames that were clamped to the catch-up budget.
+   */
+  public interface ClampListener {
+
+    /**
+     * A frame that followed the previous one by the given time only integrated the given budget.
+     */
+    void onFrameClamped(double elapsedMillis, double steppedMillis);
+  }
+}
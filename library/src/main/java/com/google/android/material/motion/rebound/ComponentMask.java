@@ -0,0 +1,101 @@
+/*
+ * Copyright 2017-present The Material Motion Authors. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.material.motion.rebound;
+
+/**
+ * A read-only set of component indices, such as the components of a vector-valued spring that
+ * changed in a frame.
+ * <p>
+ * Masks are owned and reused by the spring that publishes them, and are only valid for the
+ * duration of the callback they are passed to. Set indices can be iterated without allocating:
+ * <pre>
+ * for (int i = mask.nextSetIndex(0); i != -1; i = mask.nextSetIndex(i + 1)) { ... }
+ * </pre>
+ */
+public final class ComponentMask {
+
+  private final long[] words;
+  private final int length;
+
+  ComponentMask(int length) {
+    this.words = new long[(length + 63) >>> 6];
+    this.length = length;
+  }
+
+  /**
+   * Returns the number of components the mask covers.
+   */
+  public int getLength() {
+    return length;
+  }
+
+  /**
+   * Returns whether the component at the given index is in the mask.
+   */
+  public boolean isSet(int index) {
+    return (words[index >>> 6] & (1L << index)) != 0;
+  }
+
+  /**
+   * Returns whether no component is in the mask.
+   */
+  public boolean isEmpty() {
+    for (int w = 0; w < words.length; w++) {
+      if (words[w] != 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Returns the number of components in the mask.
+   */
+  public int getCount() {
+    int count = 0;
+    for (int w = 0; w < words.length; w++) {
+      count += Long.bitCount(words[w]);
+    }
+    return count;
+  }
+
+  /**
+   * Returns the first index in the mask that is at least the given index, or -1 if there is none.
+   */
+  public int nextSetIndex(int fromIndex) {
+    if (fromIndex >= length) {
+      return -1;
+    }
+
+    int w = fromIndex >>> 6;
+    long word = words[w] & (-1L << fromIndex);
+    while (word == 0) {
+      if (++w == words.length) {
+        return -1;
+      }
+      word = words[w];
+    }
+    return (w << 6) + Long.numberOfTrailingZeros(word);
+  }
+
+  void set(int index) {
+    words[index >>> 6] |= 1L << index;
+  }
+
+  void clear(int index) {
+    words[index >>> 6] &= ~(1L << index);
+  }
+}
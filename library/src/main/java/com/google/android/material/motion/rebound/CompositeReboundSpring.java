@@ -16,31 +16,67 @@
 package com.google.android.material.motion.rebound;
 
 import android.os.Handler;
-import android.support.v4.util.SimpleArrayMap;
+import android.support.annotation.VisibleForTesting;
 
+import com.facebook.rebound.BaseSpringSystem;
 import com.facebook.rebound.SimpleSpringListener;
 import com.facebook.rebound.Spring;
-import com.facebook.rebound.SpringListener;
-
-import java.util.List;
-import java.util.concurrent.CopyOnWriteArrayList;
+import com.facebook.rebound.SpringSystemListener;
 
 /**
  * A composite spring is made of multiple rebound springs. The composite spring manages the
  * aggregate state of each individual spring, and reports aggregate state changes to its listeners.
+ * <p>
+ * When the composite spring knows the spring system that integrates its springs, aggregate state
+ * changes are published synchronously at the end of each spring system loop. Otherwise they are
+ * deferred to the next message on the current thread's {@link Handler}.
+ * <p>
+ * Rebound only considers a spring at rest within a fixed, tiny distance of its end value, so a
+ * low friction spring keeps animating long after it stopped visibly moving. Components can be
+ * given a visual tolerance with {@link #setRestTolerances(float[])} to snap them to rest sooner.
  */
 public final class CompositeReboundSpring {
 
   private final Spring[] springs;
-  private final SpringTracker tracker;
+  private final BaseSpringSystem springSystem;
+  private final SpringFrameCallbacks frameCallbacks;
+  @VisibleForTesting
+  final SpringTracker tracker;
 
-  private final List<CompositeSpringListener> listeners = new CopyOnWriteArrayList<>();
+  /**
+   * A snapshot of the listeners. Replaced, never mutated, so dispatch can iterate it without
+   * copying or allocating an iterator.
+   */
+  private CompositeSpringListener[] listeners = new CompositeSpringListener[0];
 
   /**
-   * Create a new composite spring to track the given individual springs.
+   * Create a new composite spring to track the given individual springs. Aggregate state changes
+   * are deferred through a {@link Handler}, which must be created on a {@link android.os.Looper}
+   * thread.
    */
   public CompositeReboundSpring(Spring[] springs) {
+    this(null, springs);
+  }
+
+  /**
+   * Create a new composite spring to track the given individual springs, which must all belong to
+   * the given spring system. Aggregate state changes are published in the same frame, after the
+   * spring system has integrated all of its springs.
+   */
+  public CompositeReboundSpring(BaseSpringSystem springSystem, Spring[] springs) {
+    this(springSystem, null, springs);
+  }
+
+  /**
+   * Create a new composite spring like {@link #CompositeReboundSpring(BaseSpringSystem, Spring[])},
+   * whose batches are run by the given frame callbacks of the spring system instead of a listener
+   * of its own.
+   */
+  CompositeReboundSpring(
+    BaseSpringSystem springSystem, SpringFrameCallbacks frameCallbacks, Spring[] springs) {
     this.springs = springs;
+    this.springSystem = springSystem;
+    this.frameCallbacks = frameCallbacks;
     this.tracker = new SpringTracker(this);
   }
 
@@ -49,12 +85,12 @@ public final class CompositeReboundSpring {
    * listener to each individual spring.
    */
   public void addListener(CompositeSpringListener listener) {
-    if (listeners.isEmpty()) {
+    if (listeners.length == 0) {
       tracker.start();
     }
 
-    if (!listeners.contains(listener)) {
-      listeners.add(listener);
+    if (CopyOnWriteArrays.indexOf(listeners, listener) == -1) {
+      listeners = CopyOnWriteArrays.append(listeners, listener);
     }
   }
 
@@ -63,9 +99,13 @@ public final class CompositeReboundSpring {
    * private listener to each individual spring.
    */
   public void removeListener(CompositeSpringListener listener) {
-    listeners.remove(listener);
+    CompositeSpringListener[] newListeners = CopyOnWriteArrays.remove(listeners, listener);
+    if (newListeners == listeners) {
+      return;
+    }
+    listeners = newListeners;
 
-    if (listeners.isEmpty()) {
+    if (listeners.length == 0) {
       tracker.stop();
     }
   }
@@ -77,6 +117,68 @@ public final class CompositeReboundSpring {
     return tracker.isAtRest();
   }
 
+  /**
+   * Sets how far from its end value each component may visibly be, in the component's units. For
+   * example, half a pixel for a translation or 1/255 for a color channel. Once a component can no
+   * longer move further than its tolerance from its end value, it is snapped to its end value and
+   * put at rest. A tolerance of zero, or null tolerances, only rest components when rebound does.
+   */
+  public void setRestTolerances(float[] tolerances) {
+    tracker.tolerances = tolerances == null ? null : tolerances.clone();
+  }
+
+  /**
+   * Sets the metrics that this composite spring reports its batches to, or null to stop reporting.
+   */
+  public void setMetrics(SpringMetrics metrics) {
+    tracker.metrics = metrics;
+  }
+
+  /**
+   * Sets the recorder that this composite spring records its batches to, or null to stop recording.
+   */
+  public void setRecorder(SpringRecorder recorder) {
+    if (recorder != null && recorder.getLength() != springs.length) {
+      throw new IllegalArgumentException(
+        "Recorder has " + recorder.getLength() + " components, expected " + springs.length);
+    }
+    tracker.recorder = recorder;
+  }
+
+  /**
+   * Returns an upper bound, in seconds, of the time until every individual spring comes to rest
+   * given its current config and state, taking the rest tolerances into account. Returns zero if
+   * the composite spring is at rest, and {@link Double#POSITIVE_INFINITY} if it never will be.
+   */
+  public double getEstimatedTimeToRest() {
+    double timeToRest = 0;
+    for (int i = 0; i < springs.length; i++) {
+      Spring spring = springs[i];
+      if (spring.isAtRest()) {
+        continue;
+      }
+
+      double tension = spring.getSpringConfig().tension;
+      double displacementThreshold = spring.getRestDisplacementThreshold();
+      double speedThreshold = spring.getRestSpeedThreshold();
+      float tolerance = tracker.getTolerance(i);
+      if (tolerance > 0 && tension > 0) {
+        // Sufficient for the energy bound that snaps the component, see SpringTracker#snapToRest.
+        displacementThreshold = Math.max(displacementThreshold, tolerance / Math.sqrt(2));
+        speedThreshold = Math.max(speedThreshold, tolerance * Math.sqrt(tension / 2));
+      }
+
+      timeToRest = Math.max(timeToRest, SpringMath.restTime(
+        tension,
+        spring.getSpringConfig().friction,
+        spring.getCurrentValue() - spring.getEndValue(),
+        spring.getVelocity(),
+        displacementThreshold,
+        speedThreshold));
+    }
+    return timeToRest;
+  }
+
   /**
    * Returns the current values of each individual spring. The ordering of the values is
    * consistent with the ordering of springs provided in the constructor.
@@ -86,20 +188,23 @@ public final class CompositeReboundSpring {
   }
 
   private void onCompositeSpringActivate() {
-    for (CompositeSpringListener listener : listeners) {
-      listener.onCompositeSpringActivate();
+    CompositeSpringListener[] listeners = this.listeners;
+    for (int i = 0; i < listeners.length; i++) {
+      listeners[i].onCompositeSpringActivate();
     }
   }
 
   private void onCompositeSpringUpdate() {
-    for (CompositeSpringListener listener : listeners) {
-      listener.onCompositeSpringUpdate(tracker.currentValues);
+    CompositeSpringListener[] listeners = this.listeners;
+    for (int i = 0; i < listeners.length; i++) {
+      listeners[i].onCompositeSpringUpdate(tracker.currentValues, tracker.updatedComponents);
     }
   }
 
   private void onCompositeSpringAtRest() {
-    for (CompositeSpringListener listener : listeners) {
-      listener.onCompositeSpringAtRest();
+    CompositeSpringListener[] listeners = this.listeners;
+    for (int i = 0; i < listeners.length; i++) {
+      listeners[i].onCompositeSpringAtRest();
     }
   }
 
@@ -108,50 +213,97 @@ public final class CompositeReboundSpring {
    * state changes.
    * <p>
    * Because we do not know which individual springs are expected to change state at any given
-   * time, we use a {@link Handler} to aggregate all the individual state changes in a frame. At
-   * the end of each frame, the individual state changes are processed and an aggregate state
-   * change is published.
+   * time, we aggregate all the individual state changes in a frame. When the spring system is
+   * known, {@link SpringSystemListener#onAfterIntegrate(BaseSpringSystem)} marks the end of the
+   * frame: every individual spring has reported by then, so the batch is processed synchronously.
+   * Otherwise we use a {@link Handler} to process the batch after the current frame.
+   * <p>
+   * Each individual spring is observed by its own listener that knows the spring's index, and
+   * pending changes are stored in primitive arrays alongside a list of dirty indices. Processing a
+   * batch is proportional to the number of springs that changed, and the steady-state animation
+   * path does not allocate.
    * <p>
    * {@link #currentValues} and {@link #currentAtRestStates} should be queried to get the current
    * values and states. They may disagree with the individual springs themselves. That is expected
    * and is caused by the frame-by-frame aggregation strategy.
    */
-  private static class SpringTracker {
+  @VisibleForTesting
+  static class SpringTracker {
+
+    private static final int UPDATED_VALUE = 1;
+    private static final int UPDATED_AT_REST_STATE = 1 << 1;
 
     private final CompositeReboundSpring compositeReboundSpring;
 
     private boolean wasAtRest;
 
     private final float[] currentValues;
-    private final SimpleArrayMap<Spring, Float> updatedValues = new SimpleArrayMap<>();
-
     private final boolean[] currentAtRestStates;
-    private final SimpleArrayMap<Spring, Boolean> updatedAtRestStates = new SimpleArrayMap<>();
+    private int activeCount;
+
+    private final float[] updatedValues;
+    private final boolean[] updatedAtRestStates;
+    private final int[] updatedFlags;
+    private final int[] dirtyIndices;
+    private int dirtyCount;
+    private boolean hasUpdatedValues;
+    private final ComponentMask updatedComponents;
+
+    @VisibleForTesting
+    final IndexedSpringListener[] listeners;
 
-    private final Handler handler = new Handler();
+    private final Handler handler;
+    private boolean scheduled;
+
+    private float[] tolerances;
+
+    private SpringMetrics metrics;
+    private SpringRecorder recorder;
+    private long batchFrame;
+    private long batchOpenedNanos;
 
     public SpringTracker(CompositeReboundSpring compositeReboundSpring) {
       this.compositeReboundSpring = compositeReboundSpring;
-
-      this.currentValues = new float[compositeReboundSpring.springs.length];
-      this.currentAtRestStates = new boolean[compositeReboundSpring.springs.length];
+      this.handler = compositeReboundSpring.springSystem == null ? new Handler() : null;
+
+      int count = compositeReboundSpring.springs.length;
+      this.currentValues = new float[count];
+      this.currentAtRestStates = new boolean[count];
+      this.updatedValues = new float[count];
+      this.updatedAtRestStates = new boolean[count];
+      this.updatedFlags = new int[count];
+      this.dirtyIndices = new int[count];
+      this.updatedComponents = new ComponentMask(count);
+
+      this.listeners = new IndexedSpringListener[count];
+      for (int i = 0; i < count; i++) {
+        listeners[i] = new IndexedSpringListener(i);
+      }
     }
 
     /**
      * Adds the listener to each individual spring.
      */
     private void start() {
+      activeCount = 0;
       for (int i = 0, count = compositeReboundSpring.springs.length; i < count; i++) {
         Spring spring = compositeReboundSpring.springs[i];
 
         currentValues[i] = (float) spring.getCurrentValue();
         currentAtRestStates[i] = spring.isAtRest();
-        spring.addListener(listener);
+        if (!currentAtRestStates[i]) {
+          activeCount++;
+        }
+        spring.addListener(listeners[i]);
       }
 
-      this.updatedValues.clear();
-      this.updatedAtRestStates.clear();
+      clearUpdates();
       this.wasAtRest = isAtRest();
+
+      if (compositeReboundSpring.springSystem != null
+        && compositeReboundSpring.frameCallbacks == null) {
+        compositeReboundSpring.springSystem.addListener(systemListener);
+      }
     }
 
     /**
@@ -160,58 +312,146 @@ public final class CompositeReboundSpring {
     private void stop() {
       for (int i = 0, count = compositeReboundSpring.springs.length; i < count; i++) {
         Spring spring = compositeReboundSpring.springs[i];
-        spring.removeListener(listener);
+        spring.removeListener(listeners[i]);
+      }
+
+      if (compositeReboundSpring.frameCallbacks != null) {
+        compositeReboundSpring.frameCallbacks.remove(frameCallback);
+      } else if (compositeReboundSpring.springSystem != null) {
+        compositeReboundSpring.springSystem.removeListener(systemListener);
+      } else {
+        handler.removeCallbacks(processBatch);
       }
-      handler.removeCallbacks(processBatch);
+      scheduled = false;
     }
 
     private boolean isAtRest() {
-      for (boolean atRest : currentAtRestStates) {
-        if (!atRest) {
-          return false;
+      return activeCount == 0;
+    }
+
+    private float getTolerance(int index) {
+      float[] tolerances = this.tolerances;
+      return tolerances == null || index >= tolerances.length ? 0 : tolerances[index];
+    }
+
+    private void markDirty(int index, int flag) {
+      if (updatedFlags[index] == 0) {
+        if (dirtyCount == 0 && metrics != null) {
+          batchFrame = metrics.getFrame();
+          batchOpenedNanos = System.nanoTime();
         }
+        dirtyIndices[dirtyCount++] = index;
       }
-      return true;
+      updatedFlags[index] |= flag;
+      schedule();
     }
 
     private void schedule() {
-      handler.removeCallbacks(processBatch);
-      handler.post(processBatch);
+      if (scheduled) {
+        return;
+      }
+      scheduled = true;
+
+      if (handler != null) {
+        handler.post(processBatch);
+      } else if (compositeReboundSpring.frameCallbacks != null) {
+        compositeReboundSpring.frameCallbacks.postAfterIntegrate(frameCallback);
+      }
     }
 
-    private final SpringListener listener = new SimpleSpringListener() {
+    private final SpringFrameCallbacks.Callback frameCallback =
+      new SpringFrameCallbacks.Callback() {
+        @Override
+        public void onFrame(BaseSpringSystem springSystem) {
+          if (scheduled) {
+            processBatch.run();
+          }
+        }
+      };
+
+    @VisibleForTesting
+    final SpringSystemListener systemListener = new SpringSystemListener() {
+      @Override
+      public void onBeforeIntegrate(BaseSpringSystem springSystem) {
+      }
+
+      @Override
+      public void onAfterIntegrate(BaseSpringSystem springSystem) {
+        if (scheduled) {
+          processBatch.run();
+        }
+      }
+    };
+
+    /**
+     * Observes the individual spring at a fixed index.
+     */
+    @VisibleForTesting
+    final class IndexedSpringListener extends SimpleSpringListener {
+
+      private final int index;
+
+      private IndexedSpringListener(int index) {
+        this.index = index;
+      }
 
       @Override
       public void onSpringUpdate(Spring spring) {
-        updatedValues.put(spring, (float) spring.getCurrentValue());
-        schedule();
+        if (metrics != null) {
+          metrics.onSpringUpdate();
+        }
+        updatedValues[index] = (float) spring.getCurrentValue();
+        markDirty(index, UPDATED_VALUE);
       }
 
       @Override
       public void onSpringAtRest(Spring spring) {
-        updatedAtRestStates.put(spring, true);
-        schedule();
+        updatedAtRestStates[index] = true;
+        markDirty(index, UPDATED_AT_REST_STATE);
       }
 
       @Override
       public void onSpringActivate(Spring spring) {
-        updatedAtRestStates.put(spring, false);
-        schedule();
+        updatedAtRestStates[index] = false;
+        markDirty(index, UPDATED_AT_REST_STATE);
       }
-    };
+    }
 
     private final Runnable processBatch = new Runnable() {
       @Override
       public void run() {
+        SpringMetrics metrics = SpringTracker.this.metrics;
+        long startNanos = 0;
+        if (metrics != null) {
+          metrics.onBatchStart(batchFrame);
+          startNanos = System.nanoTime();
+        }
+
+        snapToRest();
+        scheduled = false;
         processUpdates();
 
+        long dispatchNanos = 0;
+        if (metrics != null) {
+          dispatchNanos = System.nanoTime();
+          metrics.recordAggregation(dispatchNanos - startNanos);
+          if (hasUpdatedValues && batchOpenedNanos != 0) {
+            metrics.recordLatency(dispatchNanos - batchOpenedNanos);
+          }
+        }
+
         boolean isAtRest = isAtRest();
 
+        SpringRecorder recorder = SpringTracker.this.recorder;
+        if (recorder != null) {
+          record(recorder, isAtRest);
+        }
+
         if (!isAtRest && wasAtRest) {
           compositeReboundSpring.onCompositeSpringActivate();
         }
 
-        if (!updatedValues.isEmpty()) {
+        if (hasUpdatedValues) {
           compositeReboundSpring.onCompositeSpringUpdate();
         }
 
@@ -220,24 +460,95 @@ public final class CompositeReboundSpring {
         }
 
         wasAtRest = isAtRest;
-        updatedValues.clear();
-        updatedAtRestStates.clear();
+        clearUpdates();
+
+        if (metrics != null) {
+          metrics.recordDispatch(System.nanoTime() - dispatchNanos);
+        }
       }
     };
 
-    private void processUpdates() {
-      for (int i = 0, count = compositeReboundSpring.springs.length; i < count; i++) {
+    private void record(SpringRecorder recorder, boolean isAtRest) {
+      int events = 0;
+      if (!isAtRest && wasAtRest) {
+        events |= SpringRecording.EVENT_ACTIVATE;
+      }
+      if (hasUpdatedValues) {
+        events |= SpringRecording.EVENT_UPDATE;
+      }
+      if (isAtRest && !wasAtRest) {
+        events |= SpringRecording.EVENT_AT_REST;
+      }
+      recorder.record(
+        System.nanoTime(),
+        events,
+        currentValues,
+        updatedComponents,
+        compositeReboundSpring.springs);
+    }
+
+    /**
+     * Snaps each updated spring that is within its tolerance to rest at its end value.
+     * <p>
+     * A spring's energy never increases, so it can never move further from its end value than
+     * sqrt(x^2 + v^2 / k). Once that bound is within the tolerance, the rest of the animation is
+     * invisible. Runs while the batch is still scheduled, so the updates that snapping triggers
+     * join the current batch.
+     */
+    private void snapToRest() {
+      if (tolerances == null) {
+        return;
+      }
+
+      for (int d = 0, count = dirtyCount; d < count; d++) {
+        int i = dirtyIndices[d];
+        float tolerance = getTolerance(i);
         Spring spring = compositeReboundSpring.springs[i];
+        double tension = spring.getSpringConfig().tension;
+        if (tolerance <= 0 || tension <= 0 || spring.isAtRest()) {
+          continue;
+        }
+
+        double displacement = spring.getCurrentValue() - spring.getEndValue();
+        double velocity = spring.getVelocity();
+        double bound = displacement * displacement + velocity * velocity / tension;
+        if (bound <= tolerance * tolerance) {
+          spring.setCurrentValue(spring.getEndValue());
+          updatedAtRestStates[i] = true;
+          markDirty(i, UPDATED_AT_REST_STATE);
+        }
+      }
+    }
 
-        if (updatedValues.containsKey(spring)) {
-          currentValues[i] = updatedValues.get(spring);
+    private void processUpdates() {
+      for (int d = 0; d < dirtyCount; d++) {
+        int i = dirtyIndices[d];
+        int flags = updatedFlags[i];
+
+        if ((flags & UPDATED_VALUE) != 0) {
+          currentValues[i] = updatedValues[i];
+          updatedComponents.set(i);
+          hasUpdatedValues = true;
         }
 
-        if (updatedAtRestStates.containsKey(spring)) {
-          currentAtRestStates[i] = updatedAtRestStates.get(spring);
+        boolean updatedAtRestState = (flags & UPDATED_AT_REST_STATE) != 0;
+        if (updatedAtRestState && currentAtRestStates[i] != updatedAtRestStates[i]) {
+          currentAtRestStates[i] = updatedAtRestStates[i];
+          activeCount += currentAtRestStates[i] ? -1 : 1;
         }
       }
     }
+
+    private void clearUpdates() {
+      for (int d = 0; d < dirtyCount; d++) {
+        int i = dirtyIndices[d];
+        updatedFlags[i] = 0;
+        updatedComponents.clear(i);
+      }
+      dirtyCount = 0;
+      hasUpdatedValues = false;
+      batchOpenedNanos = 0;
+    }
   }
 
   /**
@@ -251,9 +562,12 @@ public final class CompositeReboundSpring {
     void onCompositeSpringActivate();
 
     /**
-     * Some individual springs have updated.
+     * Some individual springs have updated. The values array holds the current value of every
+     * individual spring, and the mask holds the indices of the springs that updated in this batch,
+     * so that listeners can skip the components that did not change. Both are owned by the
+     * composite spring and are only valid for the duration of the call.
      */
-    void onCompositeSpringUpdate(float[] values);
+    void onCompositeSpringUpdate(float[] values, ComponentMask updated);
 
     /**
      * Some individual springs were active, and now all are at rest.
@@ -0,0 +1,65 @@
+/*
+ * Copyright 2017-present The Material Motion Authors. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.material.motion.rebound;
+
+import java.util.Arrays;
+
+/**
+ * Helpers for listener arrays that are replaced, never mutated, when an element is added or
+ * removed. Notifying the elements is then a single indexed loop over a snapshot of the array,
+ * which is safe against elements that are added or removed while being notified.
+ */
+final class CopyOnWriteArrays {
+
+  private CopyOnWriteArrays() {
+  }
+
+  /**
+   * Returns the index of the element in the array, compared by identity, or -1.
+   */
+  static <T> int indexOf(T[] array, T element) {
+    for (int i = 0; i < array.length; i++) {
+      if (array[i] == element) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Returns a copy of the array with the element appended.
+   */
+  static <T> T[] append(T[] array, T element) {
+    T[] newArray = Arrays.copyOf(array, array.length + 1);
+    newArray[array.length] = element;
+    return newArray;
+  }
+
+  /**
+   * Returns a copy of the array without the first occurrence of the element, or the array itself
+   * if it does not contain the element.
+   */
+  static <T> T[] remove(T[] array, T element) {
+    int index = indexOf(array, element);
+    if (index == -1) {
+      return array;
+    }
+
+    T[] newArray = Arrays.copyOf(array, array.length - 1);
+    System.arraycopy(array, index + 1, newArray, index, newArray.length - index);
+    return newArray;
+  }
+}
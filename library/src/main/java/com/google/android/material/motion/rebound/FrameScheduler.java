@@ -0,0 +1,115 @@
+/*
+ * Copyright 2017-present The Material Motion Authors. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.material.motion.rebound;
+
+import android.annotation.TargetApi;
+import android.os.Build;
+import android.os.Handler;
+import android.view.Choreographer;
+
+/**
+ * Schedules a callback for the next display frame of the thread it was created on, which must have
+ * a {@link android.os.Looper}. Uses the thread's {@link Choreographer}, or approximates frames with
+ * a {@link Handler} below Jelly Bean.
+ */
+abstract class FrameScheduler {
+
+  private static final long FALLBACK_FRAME_MILLIS = 16;
+
+  /**
+   * Creates a frame scheduler bound to the current thread.
+   */
+  static FrameScheduler create(Callback callback) {
+    if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+      return new ChoreographerFrameScheduler(callback);
+    } else {
+      return new HandlerFrameScheduler(callback);
+    }
+  }
+
+  /**
+   * Schedules the callback for the next frame.
+   */
+  abstract void postFrame();
+
+  /**
+   * Removes the scheduled callback, if any.
+   */
+  abstract void removeFrame();
+
+  /**
+   * A callback for display frames.
+   */
+  interface Callback {
+
+    /**
+     * A frame starts at the given time, in the {@link System#nanoTime()} time base.
+     */
+    void doFrame(long frameTimeNanos);
+  }
+
+  @TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+  private static final class ChoreographerFrameScheduler
+    extends FrameScheduler implements Choreographer.FrameCallback {
+
+    private final Choreographer choreographer = Choreographer.getInstance();
+    private final Callback callback;
+
+    private ChoreographerFrameScheduler(Callback callback) {
+      this.callback = callback;
+    }
+
+    @Override
+    void postFrame() {
+      choreographer.postFrameCallback(this);
+    }
+
+    @Override
+    void removeFrame() {
+      choreographer.removeFrameCallback(this);
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+      callback.doFrame(frameTimeNanos);
+    }
+  }
+
+  private static final class HandlerFrameScheduler extends FrameScheduler implements Runnable {
+
+    private final Handler handler = new Handler();
+    private final Callback callback;
+
+    private HandlerFrameScheduler(Callback callback) {
+      this.callback = callback;
+    }
+
+    @Override
+    void postFrame() {
+      handler.postDelayed(this, FALLBACK_FRAME_MILLIS);
+    }
+
+    @Override
+    void removeFrame() {
+      handler.removeCallbacks(this);
+    }
+
+    @Override
+    public void run() {
+      callback.doFrame(System.nanoTime());
+    }
+  }
+}
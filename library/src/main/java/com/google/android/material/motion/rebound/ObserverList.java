@@ -0,0 +1,56 @@
+/*
+ * Copyright 2017-present The Material Motion Authors. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.material.motion.rebound;
+
+import com.google.android.material.motion.MotionObserver;
+
+/**
+ * The observers that a spring source fans its values out to.
+ * <p>
+ * Observers are kept in a snapshot array that is replaced, never mutated, when an observer is
+ * added or removed. Fanning out a value is a single indexed loop over the array, without an
+ * iterator, a size check per observer, or any allocation, and is safe against observers that
+ * connect or disconnect while being notified.
+ */
+final class ObserverList<T> {
+
+  private static final MotionObserver<?>[] EMPTY = new MotionObserver<?>[0];
+
+  private MotionObserver<?>[] observers = EMPTY;
+
+  void add(MotionObserver<T> observer) {
+    observers = CopyOnWriteArrays.append(observers, observer);
+  }
+
+  void remove(MotionObserver<T> observer) {
+    observers = CopyOnWriteArrays.remove(observers, observer);
+  }
+
+  boolean isEmpty() {
+    return observers.length == 0;
+  }
+
+  /**
+   * Delivers the value to every observer.
+   */
+  @SuppressWarnings("unchecked")
+  void next(T value) {
+    MotionObserver<?>[] observers = this.observers;
+    for (int i = 0; i < observers.length; i++) {
+      ((MotionObserver<T>) observers[i]).next(value);
+    }
+  }
+}
@@ -15,14 +15,11 @@
  */
 package com.google.android.material.motion.rebound;
 
-import android.support.v4.util.SimpleArrayMap;
-
-import com.facebook.rebound.OrigamiValueConverter;
+import com.facebook.rebound.BaseSpringSystem;
+import com.facebook.rebound.SimpleSpringListener;
 import com.facebook.rebound.Spring;
 import com.facebook.rebound.SpringConfig;
-import com.facebook.rebound.SpringSystem;
 import com.google.android.indefinite.observable.IndefiniteObservable.Subscription;
-import com.google.android.indefinite.observable.Observer;
 import com.google.android.material.motion.MotionObserver;
 import com.google.android.material.motion.MotionObserver.SimpleMotionObserver;
 import com.google.android.material.motion.MotionState;
@@ -36,120 +33,231 @@ import com.google.android.material.motion.sources.SpringSource;
  * Rebound springs only support animating between float values. This class supports arbitrary T
  * values by vectorizing the value into floats, and animating them individually using separate
  * rebound springs.
+ * <p>
+ * The rebound springs are leased from a {@link SharedSpringSystem}'s pool when the source is
+ * enabled, and returned to the pool when it is disabled, so the number of live springs scales with
+ * the number of enabled sources rather than with every source ever created. Sources that share a
+ * spring system have all of their springs integrated in a single pass per frame.
+ * <p>
+ * By default, aggregate spring updates are delivered to observers in the same frame that rebound
+ * computed them. {@link SystemBuilder#setDeferredDispatch(boolean)} restores the previous behavior
+ * of deferring each update through a {@link android.os.Handler}.
+ * <p>
+ * Each aggregate update is composed into a T once and the same instance is delivered to every
+ * connected observer. If the vectorizer implements {@link ReusableTypeVectorizer}, that instance
+ * is also reused across frames, so animating a value does not allocate. Consumers that only need
+ * the raw components, such as draw code or shader uniforms, can instead add a
+ * {@link SpringValueListener}, which receives the vectorized values and a mask of the components
+ * that updated, without composing a T.
+ * <p>
+ * A source whose vectorizer has a single component, such as one that animates alpha or rotation,
+ * observes its lone rebound spring directly instead of through a {@link CompositeReboundSpring}:
+ * each update is delivered as soon as rebound computes it, with no aggregation step. As with a
+ * composite spring, the initial value is delivered at the end of the first loop after the source
+ * is enabled. Deferred dispatch always goes through a composite spring.
+ * <p>
+ * Destination writes are coalesced. The first write after a frame is applied immediately, later
+ * writes before the next frame only record the latest destination, which is applied when that
+ * frame begins. Only the springs whose component of the destination changed are retargeted.
+ * <p>
+ * Tension and friction can change at any time while the source is enabled. Changes are applied
+ * together when the next frame begins, from configs shared by every spring with the same origami
+ * values.
+ * <p>
+ * Sources that animate together can be added to a {@link SpringGroup} to be notified once when
+ * all of them have come to rest.
  */
 public final class ReboundSpringSource<T> extends SpringSource<T> {
 
-  public static final System SYSTEM = new System() {
-    @Override
-    public <T> SpringSource<T> create(MaterialSpring<?, T> spring) {
-      return new ReboundSpringSource<>(spring);
-    }
-  };
+  /**
+   * Creates rebound spring sources that share the process-wide spring system.
+   */
+  public static final System SYSTEM = new SystemBuilder().build();
 
-  private final SpringSystem springSystem = SpringSystem.create();
+  private final SharedSpringSystem sharedSpringSystem;
+  private final boolean deferredDispatch;
+  private final SpringMetrics metrics;
   private final MaterialSpring<?, T> interaction;
 
-  private final Spring[] reboundSprings;
-  private final CompositeReboundSpring compositeSpring;
-  private final SimpleArrayMap<Observer<T>, CompositeSpringListener> springListeners = new SimpleArrayMap<>();
+  private final ObserverList<T> observers = new ObserverList<>();
+  private SpringValueListener[] valueListeners = new SpringValueListener[0];
+  private final ValueComposer<T> composer;
+  private final float[] endValues;
+  private final float[] scratchValues;
+
+  /**
+   * Whether the lone rebound spring of a single component source is observed directly. The
+   * current value and the at rest state are then tracked here instead of by a composite spring.
+   */
+  private final boolean scalar;
+  private final float[] scalarValues;
+  private final ComponentMask scalarMask;
+  private boolean scalarAtRest = true;
+  private boolean scalarValuePending;
+
+  /**
+   * Which springs are active, as reported to the group by their activation and rest callbacks.
+   */
+  private final boolean[] activeSprings;
+
+  private BaseSpringSystem springSystem;
+  private SpringFrameCallbacks frameCallbacks;
+  private boolean frameCallbackPosted;
+  private Spring[] reboundSprings;
+  private CompositeReboundSpring compositeSpring;
 
   private Subscription destinationSubscription;
   private Subscription frictionSubscription;
   private Subscription tensionSubscription;
 
+  private boolean hasPendingEndValues;
+  private boolean appliedEndValuesThisFrame;
+
+  private float origamiTension;
+  private float origamiFriction;
+  private boolean hasPendingConfig;
+
+  SpringGroup group;
+
   public ReboundSpringSource(MaterialSpring<?, T> interaction) {
+    this(interaction, SharedSpringSystem.getDefault());
+  }
+
+  public ReboundSpringSource(
+    MaterialSpring<?, T> interaction, SharedSpringSystem sharedSpringSystem) {
+    this(interaction, new SystemBuilder().setSharedSpringSystem(sharedSpringSystem));
+  }
+
+  private ReboundSpringSource(MaterialSpring<?, T> interaction, SystemBuilder builder) {
     super(interaction);
     this.interaction = interaction;
-    reboundSprings = new Spring[interaction.vectorizer.getVectorLength()];
-    for (int i = 0; i < reboundSprings.length; i++) {
-      reboundSprings[i] = springSystem.createSpring();
+    this.sharedSpringSystem = builder.sharedSpringSystem;
+    this.deferredDispatch = builder.deferredDispatch;
+    this.metrics = builder.metrics;
+    this.composer = new ValueComposer<>(interaction.vectorizer);
+    this.endValues = new float[interaction.vectorizer.getVectorLength()];
+    this.scratchValues = new float[endValues.length];
+    this.activeSprings = new boolean[endValues.length];
+
+    this.scalar = endValues.length == 1 && !deferredDispatch;
+    this.scalarValues = scalar ? new float[1] : null;
+    this.scalarMask = scalar ? new ComponentMask(1) : null;
+    if (scalar) {
+      scalarMask.set(0);
     }
+  }
 
-    compositeSpring = new CompositeReboundSpring(reboundSprings);
-    compositeSpring.addListener(new CompositeSpringListener() {
-      @Override
-      public void onCompositeSpringActivate() {
-        for (int i = 0, count = springListeners.size(); i < count; i++) {
-          springListeners.valueAt(i).onCompositeSpringActivate();
-        }
-      }
+  /**
+   * Retargets the springs to the given vectorized destination and sets their vectorized velocity,
+   * in units per second, for example to hand off a fling gesture's velocity to the springs. A null
+   * velocity keeps the springs' current velocity. Must only be called while the source is enabled.
+   * <p>
+   * Both the velocity and the destination are set on the springs immediately, bypassing the
+   * coalescing of destination writes, and the springs integrate them in the next loop. A
+   * destination write that was deferred to the next frame is dropped. Does not allocate.
+   * <p>
+   * The interaction's destination is not written, so it keeps its last written value and its
+   * observers are not notified. The next write to the destination, or enabling the source again,
+   * retargets the springs to that destination.
+   */
+  public void retarget(float[] destination, float[] velocity) {
+    if (reboundSprings == null) {
+      throw new IllegalStateException("Retargeted a spring source that is not enabled.");
+    }
+    if (destination.length != reboundSprings.length) {
+      throw new IllegalArgumentException(
+        "Destination has " + destination.length + " components, expected "
+          + reboundSprings.length);
+    }
+    if (velocity != null && velocity.length != reboundSprings.length) {
+      throw new IllegalArgumentException(
+        "Velocity has " + velocity.length + " components, expected " + reboundSprings.length);
+    }
 
-      @Override
-      public void onCompositeSpringUpdate(float[] values) {
-        for (int i = 0, count = springListeners.size(); i < count; i++) {
-          springListeners.valueAt(i).onCompositeSpringUpdate(values);
-        }
+    if (velocity != null) {
+      for (int i = 0; i < reboundSprings.length; i++) {
+        reboundSprings[i].setVelocity(velocity[i]);
       }
+    }
 
-      @Override
-      public void onCompositeSpringAtRest() {
-        for (int i = 0, count = springListeners.size(); i < count; i++) {
-          springListeners.valueAt(i).onCompositeSpringAtRest();
-        }
-      }
-    });
+    java.lang.System.arraycopy(destination, 0, endValues, 0, endValues.length);
+    applyEndValues();
   }
 
-  @Override
-  protected void onConnect(final MotionObserver<T> observer) {
-    springListeners.put(observer, new CompositeSpringListener() {
-
-      @Override
-      public void onCompositeSpringActivate() {
-        interaction.state.write(MotionState.ACTIVE);
-      }
+  /**
+   * Adds a listener for the vectorized values of the springs. Value listeners are notified while
+   * the source is enabled, after its observers, but do not enable the source themselves.
+   */
+  public void addValueListener(SpringValueListener listener) {
+    if (CopyOnWriteArrays.indexOf(valueListeners, listener) == -1) {
+      valueListeners = CopyOnWriteArrays.append(valueListeners, listener);
+    }
+  }
 
-      @Override
-      public void onCompositeSpringUpdate(float[] values) {
-        T value = interaction.vectorizer.compose(values);
-        observer.next(value);
-      }
+  /**
+   * Removes a listener for the vectorized values of the springs.
+   */
+  public void removeValueListener(SpringValueListener listener) {
+    valueListeners = CopyOnWriteArrays.remove(valueListeners, listener);
+  }
 
-      @Override
-      public void onCompositeSpringAtRest() {
-        interaction.state.write(MotionState.AT_REST);
-      }
-    });
+  @Override
+  protected void onConnect(MotionObserver<T> observer) {
+    observers.add(observer);
   }
 
   @Override
   protected void onEnable(MotionObserver<T> observer) {
-    final SpringConfig springConfig = new SpringConfig(0, 0);
+    leaseSprings();
+    if (group != null) {
+      attachToGroup();
+    }
+
     tensionSubscription = interaction.tension.subscribe(new SimpleMotionObserver<Float>() {
       @Override
       public void next(Float value) {
-        springConfig.tension = OrigamiValueConverter.tensionFromOrigamiValue(value);
+        origamiTension = value;
+        hasPendingConfig = true;
+        postFrameCallback();
       }
     });
     frictionSubscription = interaction.friction.subscribe(new SimpleMotionObserver<Float>() {
       @Override
       public void next(Float value) {
-        springConfig.friction = OrigamiValueConverter.frictionFromOrigamiValue(value);
+        origamiFriction = value;
+        hasPendingConfig = true;
+        postFrameCallback();
       }
     });
+    applyConfig();
 
-    final int count = reboundSprings.length;
-
-    float[] initialValues = new float[count];
-    interaction.vectorizer.vectorize(interaction.initialValue.read(), initialValues);
+    interaction.vectorizer.vectorize(interaction.initialValue.read(), scratchValues);
+    for (int i = 0; i < reboundSprings.length; i++) {
+      reboundSprings[i].setCurrentValue(scratchValues[i]);
+    }
 
-    float[] initialVelocities = new float[count];
-    interaction.vectorizer.vectorize(interaction.initialVelocity.read(), initialVelocities);
+    interaction.vectorizer.vectorize(interaction.initialVelocity.read(), scratchValues);
+    for (int i = 0; i < reboundSprings.length; i++) {
+      reboundSprings[i].setVelocity(scratchValues[i]);
+    }
 
-    for (int i = 0; i < count; i++) {
-      reboundSprings[i].setSpringConfig(springConfig);
-      reboundSprings[i].setCurrentValue(initialValues[i]);
-      reboundSprings[i].setVelocity(initialVelocities[i]);
+    if (scalar) {
+      // Like a composite spring, deliver the initial value at the end of the next loop rather than
+      // while the source is being enabled.
+      reboundSprings[0].addListener(scalarDispatcher);
+      scalarValuePending = true;
+      frameCallbacks.postAfterIntegrate(scalarValueCallback);
     }
 
-    final float[] endValues = new float[count];
     destinationSubscription = interaction.destination.subscribe(new SimpleMotionObserver<T>() {
       @Override
       public void next(T value) {
         interaction.vectorizer.vectorize(value, endValues);
 
-        for (int i = 0; i < count; i++) {
-          reboundSprings[i].setEndValue(endValues[i]);
+        if (appliedEndValuesThisFrame && !springSystem.getIsIdle()) {
+          hasPendingEndValues = true;
+        } else {
+          applyEndValues();
         }
       }
     });
@@ -160,14 +268,401 @@ public final class ReboundSpringSource<T> extends SpringSource<T> {
     tensionSubscription.unsubscribe();
     frictionSubscription.unsubscribe();
     destinationSubscription.unsubscribe();
+    frameCallbacks.remove(frameCallback);
+    frameCallbacks.remove(scalarValueCallback);
+    frameCallbackPosted = false;
+    scalarValuePending = false;
+    hasPendingConfig = false;
+    hasPendingEndValues = false;
+    appliedEndValuesThisFrame = false;
 
-    for (int i = 0; i < reboundSprings.length; i++) {
-      reboundSprings[i].setAtRest();
+    if (scalar ? !scalarAtRest : !compositeSpring.isAtRest()) {
+      interaction.state.write(MotionState.AT_REST);
+    }
+    if (group != null) {
+      detachFromGroup();
+    }
+    returnSprings();
+
+    if (group != null) {
+      group.update();
     }
   }
 
   @Override
   protected void onDisconnect(MotionObserver<T> observer) {
-    springListeners.remove(observer);
+    observers.remove(observer);
+  }
+
+  SharedSpringSystem getSharedSpringSystem() {
+    return sharedSpringSystem;
+  }
+
+  /**
+   * Reports the springs of an enabled source that are moving to its group, and follows their
+   * activation and rest from then on.
+   */
+  void attachToGroup() {
+    if (reboundSprings == null) {
+      return;
+    }
+    for (int i = 0; i < reboundSprings.length; i++) {
+      activeSprings[i] = !reboundSprings[i].isAtRest();
+      if (activeSprings[i]) {
+        group.onSpringActivate();
+      }
+      reboundSprings[i].addListener(groupDispatcher);
+    }
+  }
+
+  /**
+   * Stops following the springs of an enabled source, and reports its active springs to its group
+   * as at rest.
+   */
+  void detachFromGroup() {
+    if (reboundSprings == null) {
+      return;
+    }
+    for (int i = 0; i < reboundSprings.length; i++) {
+      reboundSprings[i].removeListener(groupDispatcher);
+      if (activeSprings[i]) {
+        activeSprings[i] = false;
+        group.onSpringAtRest();
+      }
+    }
+  }
+
+  /**
+   * Configures every spring with the latest origami tension and friction.
+   */
+  private void applyConfig() {
+    hasPendingConfig = false;
+
+    SpringConfig springConfig = SpringConfigCache.get(origamiTension, origamiFriction);
+    for (int i = 0; i < reboundSprings.length; i++) {
+      if (reboundSprings[i].getSpringConfig() != springConfig) {
+        reboundSprings[i].setSpringConfig(springConfig);
+      }
+    }
+  }
+
+  /**
+   * Retargets the springs whose end value differs from the latest destination.
+   */
+  private void applyEndValues() {
+    hasPendingEndValues = false;
+    appliedEndValuesThisFrame = true;
+    postFrameCallback();
+
+    for (int i = 0; i < reboundSprings.length; i++) {
+      if (reboundSprings[i].getEndValue() != endValues[i]) {
+        reboundSprings[i].setEndValue(endValues[i]);
+      }
+    }
+  }
+
+  private void postFrameCallback() {
+    if (!frameCallbackPosted) {
+      frameCallbackPosted = true;
+      frameCallbacks.postBeforeIntegrate(frameCallback);
+    }
+  }
+
+  private void leaseSprings() {
+    springSystem = sharedSpringSystem.acquire();
+    frameCallbacks = sharedSpringSystem.getFrameCallbacks();
+    if (metrics != null) {
+      metrics.attach(springSystem);
+    }
+
+    reboundSprings = new Spring[interaction.vectorizer.getVectorLength()];
+    for (int i = 0; i < reboundSprings.length; i++) {
+      reboundSprings[i] = sharedSpringSystem.obtainSpring();
+    }
+
+    if (scalar) {
+      scalarAtRest = reboundSprings[0].isAtRest();
+      return;
+    }
+
+    if (deferredDispatch) {
+      compositeSpring = new CompositeReboundSpring(reboundSprings);
+    } else {
+      compositeSpring = new CompositeReboundSpring(springSystem, frameCallbacks, reboundSprings);
+    }
+    compositeSpring.setMetrics(metrics);
+    compositeSpring.addListener(dispatcher);
+  }
+
+  private void returnSprings() {
+    if (scalar) {
+      reboundSprings[0].removeListener(scalarDispatcher);
+      scalarAtRest = true;
+    } else {
+      compositeSpring.removeListener(dispatcher);
+      compositeSpring = null;
+    }
+
+    for (int i = 0; i < reboundSprings.length; i++) {
+      sharedSpringSystem.recycleSpring(reboundSprings[i]);
+    }
+    reboundSprings = null;
+
+    if (metrics != null) {
+      metrics.detach(springSystem);
+    }
+    sharedSpringSystem.release(springSystem);
+    springSystem = null;
+    frameCallbacks = null;
+  }
+
+  /**
+   * Applies the config and destination changes that were deferred to the start of the frame. Only
+   * posted for frames that follow such changes.
+   */
+  private final SpringFrameCallbacks.Callback frameCallback = new SpringFrameCallbacks.Callback() {
+    @Override
+    public void onFrame(BaseSpringSystem springSystem) {
+      if (hasPendingConfig) {
+        applyConfig();
+      }
+      if (hasPendingEndValues) {
+        applyEndValues();
+      }
+      appliedEndValuesThisFrame = false;
+      frameCallbackPosted = false;
+    }
+  };
+
+  /**
+   * Counts the active springs of a source in a group. Rebound can notify a spring's rest without a
+   * preceding activation, so each spring's state is tracked to only report changes.
+   */
+  private final SimpleSpringListener groupDispatcher = new SimpleSpringListener() {
+    @Override
+    public void onSpringActivate(Spring spring) {
+      int index = indexOf(spring);
+      if (!activeSprings[index]) {
+        activeSprings[index] = true;
+        group.onSpringActivate();
+      }
+    }
+
+    @Override
+    public void onSpringAtRest(Spring spring) {
+      int index = indexOf(spring);
+      if (activeSprings[index]) {
+        activeSprings[index] = false;
+        group.onSpringAtRest();
+      }
+    }
+
+    private int indexOf(Spring spring) {
+      int index = 0;
+      while (reboundSprings[index] != spring) {
+        index++;
+      }
+      return index;
+    }
+  };
+
+  private final CompositeSpringListener dispatcher = new CompositeSpringListener() {
+    @Override
+    public void onCompositeSpringActivate() {
+      interaction.state.write(MotionState.ACTIVE);
+    }
+
+    @Override
+    public void onCompositeSpringUpdate(float[] values, ComponentMask updated) {
+      dispatchValues(values, updated);
+    }
+
+    @Override
+    public void onCompositeSpringAtRest() {
+      interaction.state.write(MotionState.AT_REST);
+    }
+  };
+
+  /**
+   * Observes the lone rebound spring of a single component source. Rebound notifies activation,
+   * update and rest in that order within a single advance, so they map directly onto the aggregate
+   * state changes.
+   */
+  private final SimpleSpringListener scalarDispatcher = new SimpleSpringListener() {
+    @Override
+    public void onSpringActivate(Spring spring) {
+      if (scalarAtRest) {
+        scalarAtRest = false;
+        interaction.state.write(MotionState.ACTIVE);
+      }
+    }
+
+    @Override
+    public void onSpringUpdate(Spring spring) {
+      dispatchScalarValue();
+    }
+
+    @Override
+    public void onSpringAtRest(Spring spring) {
+      if (!scalarAtRest) {
+        scalarAtRest = true;
+        interaction.state.write(MotionState.AT_REST);
+      }
+    }
+  };
+
+  /**
+   * Delivers the initial value of a single component source, unless the spring already updated in
+   * the loop that followed the enable.
+   */
+  private final SpringFrameCallbacks.Callback scalarValueCallback =
+    new SpringFrameCallbacks.Callback() {
+      @Override
+      public void onFrame(BaseSpringSystem springSystem) {
+        if (scalarValuePending) {
+          dispatchScalarValue();
+        }
+      }
+    };
+
+  private void dispatchScalarValue() {
+    scalarValuePending = false;
+
+    SpringMetrics metrics = this.metrics;
+    long startNanos = 0;
+    if (metrics != null) {
+      metrics.onSpringUpdate();
+      startNanos = java.lang.System.nanoTime();
+    }
+
+    scalarValues[0] = (float) reboundSprings[0].getCurrentValue();
+    dispatchValues(scalarValues, scalarMask);
+
+    if (metrics != null) {
+      metrics.recordDispatch(java.lang.System.nanoTime() - startNanos);
+    }
+  }
+
+  private void dispatchValues(float[] values, ComponentMask updated) {
+    if (!observers.isEmpty()) {
+      observers.next(composer.compose(values));
+    }
+
+    SpringValueListener[] valueListeners = this.valueListeners;
+    for (int i = 0; i < valueListeners.length; i++) {
+      valueListeners[i].onSpringValuesUpdate(values, updated);
+    }
+  }
+
+  /**
+   * Builds a {@link System} that creates rebound spring sources.
+   */
+  public static final class SystemBuilder {
+
+    private SharedSpringSystem sharedSpringSystem = SharedSpringSystem.getDefault();
+    private boolean deferredDispatch;
+    private SpringMetrics metrics;
+    private SimulationThread simulationThread;
+    private SourceListener sourceListener;
+
+    /**
+     * Sets the shared spring system that the created sources acquire their springs from. Defaults
+     * to {@link SharedSpringSystem#getDefault()}.
+     */
+    public SystemBuilder setSharedSpringSystem(SharedSpringSystem sharedSpringSystem) {
+      this.sharedSpringSystem = sharedSpringSystem;
+      return this;
+    }
+
+    /**
+     * Sets whether aggregate spring updates are deferred through a {@link android.os.Handler}
+     * instead of being delivered at the end of the spring system loop that computed them. Deferred
+     * dispatch adds up to a frame of latency and requires a Looper thread. Defaults to false.
+     */
+    public SystemBuilder setDeferredDispatch(boolean deferredDispatch) {
+      this.deferredDispatch = deferredDispatch;
+      return this;
+    }
+
+    /**
+     * Sets the metrics that the created sources and their spring system report to, or null to not
+     * collect metrics. Defaults to null. Single component sources report their spring updates and
+     * dispatch times, but have no batches to report.
+     */
+    public SystemBuilder setMetrics(SpringMetrics metrics) {
+      this.metrics = metrics;
+      return this;
+    }
+
+    /**
+     * Sets the thread that the created sources simulate their springs on, or null to simulate them
+     * on the main thread. Defaults to null.
+     * <p>
+     * With a simulation thread, the system creates {@link ThreadedSpringSource threaded sources},
+     * which use the thread's own spring system and ignore the other settings of this builder.
+     */
+    public SystemBuilder setSimulationThread(SimulationThread simulationThread) {
+      this.simulationThread = simulationThread;
+      return this;
+    }
+
+    /**
+     * Sets the listener that is notified of every source the system creates, or null. Defaults to
+     * null. The runtime creates the sources, so this is how callers reach a source to
+     * {@link ReboundSpringSource#retarget(float[], float[]) retarget} it or to
+     * {@link ReboundSpringSource#addValueListener(SpringValueListener) add value listeners}.
+     * Threaded sources are not reported.
+     */
+    public SystemBuilder setSourceListener(SourceListener sourceListener) {
+      this.sourceListener = sourceListener;
+      return this;
+    }
+
+    /**
+     * Builds the system. Later changes to this builder do not affect the built system.
+     */
+    public System build() {
+      final SystemBuilder builder = copy();
+      if (builder.simulationThread != null) {
+        return new System() {
+          @Override
+          public <T> SpringSource<T> create(MaterialSpring<?, T> spring) {
+            return new ThreadedSpringSource<>(spring, builder.simulationThread);
+          }
+        };
+      }
+      return new System() {
+        @Override
+        public <T> SpringSource<T> create(MaterialSpring<?, T> spring) {
+          ReboundSpringSource<T> source = new ReboundSpringSource<>(spring, builder);
+          if (builder.sourceListener != null) {
+            builder.sourceListener.onSourceCreated(spring, source);
+          }
+          return source;
+        }
+      };
+    }
+
+    private SystemBuilder copy() {
+      SystemBuilder copy = new SystemBuilder();
+      copy.sharedSpringSystem = sharedSpringSystem;
+      copy.deferredDispatch = deferredDispatch;
+      copy.metrics = metrics;
+      copy.simulationThread = simulationThread;
+      copy.sourceListener = sourceListener;
+      return copy;
+    }
+  }
+
+  /**
+   * Listens for the rebound spring sources that a {@link System} creates.
+   */
+  public interface SourceListener {
+
+    /**
+     * Called when the system has created a source for the given interaction, before the source is
+     * connected.
+     */
+    <T> void onSourceCreated(MaterialSpring<?, T> interaction, ReboundSpringSource<T> source);
   }
 }
@@ -0,0 +1,40 @@
+/*
+ * Copyright 2017-present The Material Motion Authors. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.material.motion.rebound;
+
+import com.google.android.material.motion.springs.TypeVectorizer;
+
+/**
+ * An optional extension of a {@link TypeVectorizer} that composes values into an existing
+ * instance of T instead of allocating a new one.
+ * <p>
+ * When a spring's vectorizer implements this interface, {@link ReboundSpringSource} composes every
+ * update into a single instance that it owns, and delivers that same instance to its observers on
+ * every frame. Observers must treat the value as read-only and must not retain it after
+ * {@code next()} returns; copy it if it is needed later.
+ */
+public interface ReusableTypeVectorizer<T> {
+
+  /**
+   * Returns a new instance of T to be reused by {@link #composeInto(float[], Object)}.
+   */
+  T newInstance();
+
+  /**
+   * Composes the vector into the given instance, overwriting its previous value.
+   */
+  void composeInto(float[] vector, T value);
+}
@@ -0,0 +1,236 @@
+/*
+ * Copyright 2017-present The Material Motion Authors. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.material.motion.rebound;
+
+import com.facebook.rebound.BaseSpringSystem;
+import com.facebook.rebound.Spring;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A reference-counted rebound spring system that is shared between many spring sources.
+ * <p>
+ * Each spring system drives its springs from its own frame callback. Sources that acquire the
+ * same shared spring system have all of their springs integrated in a single pass per frame, so
+ * the per-frame cost scales with the number of active springs rather than the number of sources.
+ * Their per-frame bookkeeping runs from a single listener of the spring system, and only for the
+ * sources that have work to do in that frame.
+ * <p>
+ * The spring system is lazily created by the {@link Factory} on the first {@link #acquire()} and
+ * is dropped when the last reference is {@link #release(BaseSpringSystem) released}. The next
+ * acquire will create a fresh spring system.
+ * <p>
+ * Springs that are no longer needed can be {@link #recycleSpring(Spring) recycled} into a bounded
+ * pool instead of being destroyed, and {@link #obtainSpring() obtained} again later. This keeps
+ * the number of springs registered with the spring system proportional to the number of springs
+ * in use, without creating a new spring every time one is needed.
+ */
+public final class SharedSpringSystem {
+
+  private static final SharedSpringSystem DEFAULT = new SharedSpringSystem(new Factory() {
+    @Override
+    public BaseSpringSystem createSpringSystem() {
+      return new BaseSpringSystem(new ChoreographerSpringLooper());
+    }
+  });
+
+  /**
+   * Returns the process-wide shared spring system used by {@link ReboundSpringSource#SYSTEM}.
+   * <p>
+   * Its spring system is looped by a {@link ChoreographerSpringLooper} with the default catch-up
+   * budget and without adaptive stepping, bound to the thread that acquires it first, normally the
+   * main thread. Callers that need other looper settings create their own shared spring system
+   * with a {@link Factory} and pass it to {@link ReboundSpringSource.SystemBuilder}.
+   */
+  public static SharedSpringSystem getDefault() {
+    return DEFAULT;
+  }
+
+  /**
+   * The maximum number of idle springs kept for reuse. Further recycled springs are destroyed.
+   */
+  private static final int MAX_POOLED_SPRINGS = 64;
+
+  private final Factory factory;
+  private final List<Spring> pool = new ArrayList<>();
+
+  /**
+   * Springs that were recycled while moving. Rebound only notifies a spring's activation if the
+   * spring's last loop left it at rest, which {@link Spring#setAtRest()} does not change. These
+   * springs are pooled once the next loop has settled them, so that their next owner is notified.
+   */
+  private final List<Spring> settlingSprings = new ArrayList<>();
+  private boolean settlePosted;
+
+  private BaseSpringSystem springSystem;
+  private SpringFrameCallbacks frameCallbacks;
+  private int referenceCount;
+
+  /**
+   * Creates a new shared spring system, scoped to the caller, whose spring system is created by
+   * the given factory. See {@link SteppingSpringLooper#createSharedSpringSystem()} for spring
+   * systems that are stepped manually.
+   */
+  public SharedSpringSystem(Factory factory) {
+    this.factory = factory;
+  }
+
+  /**
+   * Acquires a reference to the spring system, creating it if needed. Each call must be balanced
+   * by a call to {@link #release(BaseSpringSystem)}.
+   */
+  public synchronized BaseSpringSystem acquire() {
+    if (springSystem == null) {
+      springSystem = factory.createSpringSystem();
+      frameCallbacks = new SpringFrameCallbacks();
+      springSystem.addListener(frameCallbacks);
+    }
+    referenceCount++;
+    return springSystem;
+  }
+
+  /**
+   * Releases a reference to the spring system. Callers should destroy the springs they created
+   * before releasing. The spring system is dropped when the last reference is released.
+   */
+  public synchronized void release(BaseSpringSystem springSystem) {
+    if (springSystem != this.springSystem || referenceCount == 0) {
+      throw new IllegalStateException("Released a spring system that was not acquired.");
+    }
+
+    referenceCount--;
+    if (referenceCount == 0) {
+      for (int i = 0, count = pool.size(); i < count; i++) {
+        pool.get(i).destroy();
+      }
+      pool.clear();
+      for (int i = 0, count = settlingSprings.size(); i < count; i++) {
+        settlingSprings.get(i).destroy();
+      }
+      settlingSprings.clear();
+      settlePosted = false;
+      springSystem.removeAllListeners();
+      this.springSystem = null;
+      this.frameCallbacks = null;
+    }
+  }
+
+  /**
+   * Returns an idle spring from the pool, or creates a new one. The spring is at rest, and has no
+   * listeners. Must only be called while holding a reference to the spring system.
+   */
+  public synchronized Spring obtainSpring() {
+    if (springSystem == null) {
+      throw new IllegalStateException("Obtained a spring without acquiring the spring system.");
+    }
+
+    int count = pool.size();
+    if (count > 0) {
+      return pool.remove(count - 1);
+    }
+    return springSystem.createSpring();
+  }
+
+  /**
+   * Puts a spring obtained from this shared spring system at rest, removes its listeners, and
+   * returns it to the pool. A spring that was moving only returns to the pool after the next loop
+   * of the spring system. The spring is destroyed if the pool is full. The caller must not use the
+   * spring afterwards. Must be called on the thread that the spring system loops on.
+   */
+  public synchronized void recycleSpring(Spring spring) {
+    spring.removeAllListeners();
+    spring.setAtRest();
+
+    if (!spring.wasAtRest()) {
+      settlingSprings.add(spring);
+      if (!settlePosted) {
+        settlePosted = true;
+        frameCallbacks.postAfterIntegrate(settle);
+      }
+      return;
+    }
+    pool(spring);
+  }
+
+  private void pool(Spring spring) {
+    if (pool.size() < MAX_POOLED_SPRINGS) {
+      pool.add(spring);
+    } else {
+      spring.destroy();
+    }
+  }
+
+  /**
+   * Returns the frame callbacks of the spring system. Must only be called while holding a reference
+   * to the spring system.
+   */
+  synchronized SpringFrameCallbacks getFrameCallbacks() {
+    if (springSystem == null) {
+      throw new IllegalStateException("Frame callbacks requested without acquiring the system.");
+    }
+    return frameCallbacks;
+  }
+
+  /**
+   * Returns the number of idle springs in the pool.
+   */
+  public synchronized int getPooledSpringCount() {
+    return pool.size();
+  }
+
+  /**
+   * Returns the number of outstanding references to the spring system.
+   */
+  public synchronized int getReferenceCount() {
+    return referenceCount;
+  }
+
+  /**
+   * Pools the recycled springs that a loop has settled.
+   */
+  private final SpringFrameCallbacks.Callback settle = new SpringFrameCallbacks.Callback() {
+    @Override
+    public void onFrame(BaseSpringSystem springSystem) {
+      synchronized (SharedSpringSystem.this) {
+        settlePosted = false;
+        for (int i = settlingSprings.size() - 1; i >= 0; i--) {
+          Spring spring = settlingSprings.get(i);
+          if (spring.wasAtRest()) {
+            settlingSprings.remove(i);
+            pool(spring);
+          }
+        }
+        if (!settlingSprings.isEmpty()) {
+          settlePosted = true;
+          frameCallbacks.postAfterIntegrate(this);
+        }
+      }
+    }
+  };
+
+  /**
+   * A factory for the spring system backing a {@link SharedSpringSystem}.
+   */
+  public interface Factory {
+
+    /**
+     * Creates a new spring system. Called whenever a shared spring system is acquired while no
+     * references are outstanding.
+     */
+    BaseSpringSystem createSpringSystem();
+  }
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright 2017-present The Material Motion Authors. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.material.motion.rebound;
+
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Process;
+import android.support.annotation.VisibleForTesting;
+
+import com.facebook.rebound.BaseSpringSystem;
+
+import java.util.concurrent.Executor;
+
+/**
+ * A dedicated thread that simulates springs away from the main thread.
+ * <p>
+ * The thread runs a {@link SharedSpringSystem} whose springs are integrated once per display frame
+ * by a {@link ChoreographerSpringLooper} bound to the thread. Spring sources created by a
+ * {@link ReboundSpringSource.SystemBuilder#setSimulationThread(SimulationThread) system} with a
+ * simulation thread run their springs here, and hand each frame to the main thread through a
+ * lock-free buffer.
+ */
+public final class SimulationThread {
+
+  private static SimulationThread defaultThread;
+
+  /**
+   * Returns the process-wide simulation thread, starting it if needed.
+   */
+  public static synchronized SimulationThread getDefault() {
+    if (defaultThread == null) {
+      defaultThread = new SimulationThread("SpringSimulation");
+    }
+    return defaultThread;
+  }
+
+  private final HandlerThread thread;
+  private final Executor executor;
+  private final SharedSpringSystem sharedSpringSystem;
+
+  /**
+   * Starts a new simulation thread with the given name, at display priority.
+   */
+  public SimulationThread(String name) {
+    thread = new HandlerThread(name, Process.THREAD_PRIORITY_DISPLAY);
+    thread.start();
+    final Handler handler = new Handler(thread.getLooper());
+    executor = new Executor() {
+      @Override
+      public void execute(Runnable runnable) {
+        handler.post(runnable);
+      }
+    };
+
+    sharedSpringSystem = new SharedSpringSystem(new SharedSpringSystem.Factory() {
+      @Override
+      public BaseSpringSystem createSpringSystem() {
+        // Acquired on the simulation thread, so the looper follows that thread's frames.
+        return new BaseSpringSystem(new ChoreographerSpringLooper());
+      }
+    });
+  }
+
+  /**
+   * Creates a simulation that runs its work on the executor, and its springs on the given shared
+   * spring system, so that tests can step it by hand.
+   */
+  @VisibleForTesting
+  SimulationThread(Executor executor, SharedSpringSystem sharedSpringSystem) {
+    this.thread = null;
+    this.executor = executor;
+    this.sharedSpringSystem = sharedSpringSystem;
+  }
+
+  /**
+   * Stops the thread. Work that was not run yet is dropped, and sources must not be enabled
+   * afterwards.
+   */
+  public void quit() {
+    if (thread != null) {
+      thread.quit();
+    }
+  }
+
+  /**
+   * Runs the runnable on the simulation thread.
+   */
+  void post(Runnable runnable) {
+    executor.execute(runnable);
+  }
+
+  /**
+   * Returns the spring system of the thread. Must only be used on the simulation thread.
+   */
+  SharedSpringSystem getSharedSpringSystem() {
+    return sharedSpringSystem;
+  }
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright 2017-present The Material Motion Authors. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.material.motion.rebound;
+
+import com.facebook.rebound.SpringConfig;
+
+/**
+ * A small cache of interned spring configs, keyed on origami tension and friction.
+ * <p>
+ * Springs that are configured with the same origami values share one {@link SpringConfig}, and
+ * looking a config up again does not allocate. The cache is direct-mapped: each pair of origami
+ * values has a single entry it may occupy, and evicts whichever config occupied it before.
+ * <p>
+ * The returned configs are shared and must not be mutated.
+ */
+final class SpringConfigCache {
+
+  private static final int SIZE = 32;
+
+  private static final float[] tensions = new float[SIZE];
+  private static final float[] frictions = new float[SIZE];
+  private static final SpringConfig[] configs = new SpringConfig[SIZE];
+
+  /**
+   * Returns the interned spring config for the given origami tension and friction.
+   */
+  static synchronized SpringConfig get(float tension, float friction) {
+    int hash = 31 * Float.floatToIntBits(tension) + Float.floatToIntBits(friction);
+    int index = (hash ^ (hash >>> 16)) & (SIZE - 1);
+
+    SpringConfig config = configs[index];
+    if (config == null || tensions[index] != tension || frictions[index] != friction) {
+      config = SpringConfig.fromOrigamiTensionAndFriction(tension, friction);
+      configs[index] = config;
+      tensions[index] = tension;
+      frictions[index] = friction;
+    }
+    return config;
+  }
+
+  private SpringConfigCache() {
+  }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright 2017-present The Material Motion Authors. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.material.motion.rebound;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A lock-free triple buffer that hands the frames of a vector-valued spring from the thread that
+ * simulates it to the thread that reads it.
+ * <p>
+ * The producer always writes into its own back frame and publishes it by swapping it with the
+ * middle frame. The consumer takes the middle frame in exchange for its front frame when it holds a
+ * frame that was not read yet. Neither side ever waits for the other or sees a frame that is being
+ * written. The consumer only sees the latest published frame, so frames that were overwritten
+ * before being read are skipped; their state changes are carried by the counters of later frames.
+ */
+final class SpringFrameBuffer {
+
+  private static final int INDEX_MASK = 0b11;
+  private static final int FRESH = 0b100;
+
+  private final Frame[] frames = new Frame[3];
+
+  /**
+   * The index of the middle frame, and whether the consumer has not read it yet.
+   */
+  private final AtomicInteger middle = new AtomicInteger(1);
+  private int back = 0;
+  private int front = 2;
+
+  SpringFrameBuffer(int length) {
+    for (int i = 0; i < frames.length; i++) {
+      frames[i] = new Frame(length);
+    }
+  }
+
+  /**
+   * Returns the frame that the producer writes. Must only be called by the producer.
+   */
+  Frame getBackFrame() {
+    return frames[back];
+  }
+
+  /**
+   * Publishes the back frame. Must only be called by the producer, which must then write the new
+   * back frame in full before publishing it.
+   */
+  void publish() {
+    back = middle.getAndSet(back | FRESH) & INDEX_MASK;
+  }
+
+  /**
+   * Returns the latest published frame if it was not read yet, or null. Must only be called by the
+   * consumer. The frame stays valid until the next call.
+   */
+  Frame read() {
+    if ((middle.get() & FRESH) == 0) {
+      return null;
+    }
+    front = middle.getAndSet(front) & INDEX_MASK;
+    return frames[front];
+  }
+
+  /**
+   * The state of a vector-valued spring at the end of a step of its simulation.
+   */
+  static final class Frame {
+
+    /**
+     * The values of each component.
+     */
+    final float[] values;
+
+    /**
+     * Whether every component was at rest.
+     */
+    boolean atRest;
+
+    /**
+     * The number of aggregate activations, value updates and rests since the simulation started.
+     * Counting rather than flagging them lets the consumer replay the order of state changes it
+     * did not see.
+     */
+    long activations;
+    long updates;
+    long rests;
+
+    /**
+     * The sequence number of the last command the simulation applied before this frame.
+     */
+    long sequence = -1;
+
+    private Frame(int length) {
+      this.values = new float[length];
+    }
+  }
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright 2017-present The Material Motion Authors. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.material.motion.rebound;
+
+import com.facebook.rebound.BaseSpringSystem;
+import com.facebook.rebound.SpringSystemListener;
+
+import java.util.Arrays;
+
+/**
+ * Runs callbacks once at the start or at the end of the next loop of a rebound spring system, from
+ * a single listener of that system.
+ * <p>
+ * Rebound notifies every listener of a spring system on every loop. Sources and composite springs
+ * that only have work to do in some frames post a callback for those frames instead of listening
+ * to every loop, so the per-frame cost scales with the number of callers that have work to do
+ * rather than with the number of callers. A callback posted while callbacks are running runs in
+ * the next loop.
+ * <p>
+ * Frame callbacks are not thread safe. They must only be used from the thread that the spring
+ * system loops on.
+ */
+final class SpringFrameCallbacks implements SpringSystemListener {
+
+  /**
+   * A callback that runs once in a loop of the spring system.
+   */
+  interface Callback {
+
+    void onFrame(BaseSpringSystem springSystem);
+  }
+
+  private final Queue beforeIntegrate = new Queue();
+  private final Queue afterIntegrate = new Queue();
+
+  /**
+   * Runs the callback once at the start of the next loop, before the springs are integrated. The
+   * caller must not post a callback that is already posted.
+   */
+  void postBeforeIntegrate(Callback callback) {
+    beforeIntegrate.add(callback);
+  }
+
+  /**
+   * Runs the callback once at the end of the current loop, or of the next loop if the current
+   * loop's callbacks are already running. The caller must not post a callback that is already
+   * posted.
+   */
+  void postAfterIntegrate(Callback callback) {
+    afterIntegrate.add(callback);
+  }
+
+  /**
+   * Removes every posted instance of the callback.
+   */
+  void remove(Callback callback) {
+    beforeIntegrate.remove(callback);
+    afterIntegrate.remove(callback);
+  }
+
+  @Override
+  public void onBeforeIntegrate(BaseSpringSystem springSystem) {
+    beforeIntegrate.run(springSystem);
+  }
+
+  @Override
+  public void onAfterIntegrate(BaseSpringSystem springSystem) {
+    afterIntegrate.run(springSystem);
+  }
+
+  /**
+   * The callbacks posted for the next run, and the callbacks of the run in progress. The two
+   * arrays swap roles on every run, so posting and running do not allocate.
+   */
+  private static final class Queue {
+
+    private Callback[] pending = new Callback[8];
+    private int pendingCount;
+    private Callback[] running = new Callback[8];
+    private int runningCount;
+
+    private void add(Callback callback) {
+      if (pendingCount == pending.length) {
+        pending = Arrays.copyOf(pending, pendingCount * 2);
+      }
+      pending[pendingCount++] = callback;
+    }
+
+    private void remove(Callback callback) {
+      for (int i = 0; i < pendingCount; i++) {
+        if (pending[i] == callback) {
+          System.arraycopy(pending, i + 1, pending, i, pendingCount - i - 1);
+          pending[--pendingCount] = null;
+          i--;
+        }
+      }
+      // Callbacks that are removed while others are running must not run anymore.
+      for (int i = 0; i < runningCount; i++) {
+        if (running[i] == callback) {
+          running[i] = null;
+        }
+      }
+    }
+
+    private void run(BaseSpringSystem springSystem) {
+      Callback[] callbacks = pending;
+      int count = pendingCount;
+      pending = running;
+      pendingCount = 0;
+      running = callbacks;
+      runningCount = count;
+
+      for (int i = 0; i < count; i++) {
+        Callback callback = callbacks[i];
+        callbacks[i] = null;
+        if (callback != null) {
+          callback.onFrame(springSystem);
+        }
+      }
+      runningCount = 0;
+    }
+  }
+}
@@ -0,0 +1,223 @@
+/*
+ * Copyright 2017-present The Material Motion Authors. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.material.motion.rebound;
+
+import com.facebook.rebound.BaseSpringSystem;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A group of rebound spring sources whose aggregate state is published as one.
+ * <p>
+ * Coordinated transitions, such as a shared element transition or a staggered list entrance, need
+ * to know when every one of their interactions has come to rest. A spring group reports
+ * {@link GroupListener#onGroupActivate()} when the first of its members starts animating and
+ * {@link GroupListener#onGroupAtRest()} when the last one stops, so callers do not have to observe
+ * and count the state of each interaction.
+ * <p>
+ * All members must share the group's {@link SharedSpringSystem}. The group counts the active
+ * springs of its enabled members from their rebound springs' activation and rest callbacks, and
+ * evaluates its state at the end of a spring system loop in which that count reached or left zero.
+ * It does no work in other frames, and does not depend on the order in which the members publish
+ * their own state. A source belongs to at most one group.
+ */
+public final class SpringGroup {
+
+  private final SharedSpringSystem sharedSpringSystem;
+  private final List<ReboundSpringSource<?>> members = new ArrayList<>();
+
+  private GroupListener[] listeners = new GroupListener[0];
+  private BaseSpringSystem springSystem;
+  private SpringFrameCallbacks frameCallbacks;
+  private boolean updatePosted;
+  private boolean wasAtRest = true;
+  private int activeSprings;
+
+  /**
+   * Creates a group for sources that share the process-wide spring system.
+   */
+  public SpringGroup() {
+    this(SharedSpringSystem.getDefault());
+  }
+
+  /**
+   * Creates a group for sources that share the given spring system.
+   */
+  public SpringGroup(SharedSpringSystem sharedSpringSystem) {
+    this.sharedSpringSystem = sharedSpringSystem;
+  }
+
+  /**
+   * Adds a source to the group.
+   */
+  public void add(ReboundSpringSource<?> source) {
+    if (source.getSharedSpringSystem() != sharedSpringSystem) {
+      throw new IllegalArgumentException("Added a source with a different shared spring system.");
+    }
+    if (source.group == this) {
+      return;
+    }
+    if (source.group != null) {
+      throw new IllegalStateException("Added a source that already belongs to a group.");
+    }
+
+    source.group = this;
+    members.add(source);
+    source.attachToGroup();
+    update();
+  }
+
+  /**
+   * Removes a source from the group.
+   */
+  public void remove(ReboundSpringSource<?> source) {
+    if (source.group != this) {
+      return;
+    }
+
+    source.detachFromGroup();
+    source.group = null;
+    members.remove(source);
+    update();
+  }
+
+  /**
+   * Returns the number of sources in the group.
+   */
+  public int size() {
+    return members.size();
+  }
+
+  /**
+   * Returns whether every spring of every source in the group was at rest at the end of the last
+   * spring system loop.
+   */
+  public boolean isAtRest() {
+    return activeSprings == 0;
+  }
+
+  /**
+   * Adds a listener to the group. The group only evaluates its state while it has listeners.
+   */
+  public void addListener(GroupListener listener) {
+    if (CopyOnWriteArrays.indexOf(listeners, listener) != -1) {
+      return;
+    }
+
+    if (listeners.length == 0) {
+      springSystem = sharedSpringSystem.acquire();
+      frameCallbacks = sharedSpringSystem.getFrameCallbacks();
+      wasAtRest = isAtRest();
+    }
+
+    listeners = CopyOnWriteArrays.append(listeners, listener);
+  }
+
+  /**
+   * Removes a listener from the group.
+   */
+  public void removeListener(GroupListener listener) {
+    GroupListener[] newListeners = CopyOnWriteArrays.remove(listeners, listener);
+    if (newListeners == listeners) {
+      return;
+    }
+    listeners = newListeners;
+
+    if (listeners.length == 0) {
+      frameCallbacks.remove(updateCallback);
+      updatePosted = false;
+      frameCallbacks = null;
+      sharedSpringSystem.release(springSystem);
+      springSystem = null;
+    }
+  }
+
+  /**
+   * Called when a spring of a member starts moving.
+   */
+  void onSpringActivate() {
+    if (activeSprings++ == 0) {
+      postUpdate();
+    }
+  }
+
+  /**
+   * Called when an active spring of a member comes to rest, or stops being followed.
+   */
+  void onSpringAtRest() {
+    if (--activeSprings == 0) {
+      postUpdate();
+    }
+  }
+
+  private void postUpdate() {
+    if (frameCallbacks != null && !updatePosted) {
+      updatePosted = true;
+      frameCallbacks.postAfterIntegrate(updateCallback);
+    }
+  }
+
+  /**
+   * Re-evaluates the aggregate state of the group and publishes its change, if any. Called at the
+   * end of a spring system loop in which the number of active springs reached or left zero, and
+   * whenever the membership or a member's springs change outside of a loop.
+   */
+  void update() {
+    GroupListener[] listeners = this.listeners;
+    if (listeners.length == 0) {
+      return;
+    }
+
+    boolean isAtRest = isAtRest();
+    if (isAtRest == wasAtRest) {
+      return;
+    }
+    wasAtRest = isAtRest;
+
+    for (int i = 0; i < listeners.length; i++) {
+      if (isAtRest) {
+        listeners[i].onGroupAtRest();
+      } else {
+        listeners[i].onGroupActivate();
+      }
+    }
+  }
+
+  private final SpringFrameCallbacks.Callback updateCallback = new SpringFrameCallbacks.Callback() {
+    @Override
+    public void onFrame(BaseSpringSystem springSystem) {
+      updatePosted = false;
+      update();
+    }
+  };
+
+  /**
+   * A listener for the aggregate state of a spring group.
+   */
+  public interface GroupListener {
+
+    /**
+     * Every source in the group was at rest, and now some are active.
+     */
+    void onGroupActivate();
+
+    /**
+     * Some sources in the group were active, and now all are at rest.
+     */
+    void onGroupAtRest();
+  }
+}
@@ -0,0 +1,172 @@
+/*
+ * Copyright 2017-present The Material Motion Authors. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.material.motion.rebound;
+
+/**
+ * Closed-form solutions of the damped harmonic oscillator that rebound springs model.
+ * <p>
+ * A spring with unit mass, the given tension k and friction c, that starts displaced from its end
+ * value by x0 with velocity v0, has a displacement x(t) that solves x'' = -k x - c x'. Depending on
+ * the sign of c^2 - 4k the spring is under, critically or over damped, each with its own solution.
+ * Times are in seconds.
+ */
+final class SpringMath {
+
+  /**
+   * Damping ratios this close to 1 are solved as critically damped, where the under and over
+   * damped solutions lose precision.
+   */
+  private static final double CRITICAL_EPSILON = 0.000001;
+
+  private static final double MAX_REST_TIME_SEC = 3600;
+  private static final int REST_TIME_ITERATIONS = 48;
+
+  /**
+   * Returns the displacement from the end value at time t.
+   */
+  static double displacement(double k, double c, double x0, double v0, double t) {
+    if (k == 0) {
+      return c == 0 ? x0 + v0 * t : x0 + v0 / c * (1 - Math.exp(-c * t));
+    }
+
+    double w0 = Math.sqrt(k);
+    double zeta = c / (2 * w0);
+    if (Math.abs(zeta - 1) < CRITICAL_EPSILON) {
+      return (x0 + (v0 + w0 * x0) * t) * Math.exp(-w0 * t);
+    } else if (zeta < 1) {
+      double sigma = zeta * w0;
+      double wd = w0 * Math.sqrt(1 - zeta * zeta);
+      double q = (v0 + sigma * x0) / wd;
+      return Math.exp(-sigma * t) * (x0 * Math.cos(wd * t) + q * Math.sin(wd * t));
+    } else {
+      double root = w0 * Math.sqrt(zeta * zeta - 1);
+      double r1 = -zeta * w0 + root;
+      double r2 = -zeta * w0 - root;
+      double c2 = (v0 - r1 * x0) / (r2 - r1);
+      double c1 = x0 - c2;
+      return c1 * Math.exp(r1 * t) + c2 * Math.exp(r2 * t);
+    }
+  }
+
+  /**
+   * Returns the velocity at time t, in units per second.
+   */
+  static double velocity(double k, double c, double x0, double v0, double t) {
+    if (k == 0) {
+      return c == 0 ? v0 : v0 * Math.exp(-c * t);
+    }
+
+    double w0 = Math.sqrt(k);
+    double zeta = c / (2 * w0);
+    if (Math.abs(zeta - 1) < CRITICAL_EPSILON) {
+      double b = v0 + w0 * x0;
+      return (b - w0 * (x0 + b * t)) * Math.exp(-w0 * t);
+    } else if (zeta < 1) {
+      double sigma = zeta * w0;
+      double wd = w0 * Math.sqrt(1 - zeta * zeta);
+      double q = (v0 + sigma * x0) / wd;
+      return Math.exp(-sigma * t)
+        * (v0 * Math.cos(wd * t) - (sigma * q + wd * x0) * Math.sin(wd * t));
+    } else {
+      double root = w0 * Math.sqrt(zeta * zeta - 1);
+      double r1 = -zeta * w0 + root;
+      double r2 = -zeta * w0 - root;
+      double c2 = (v0 - r1 * x0) / (r2 - r1);
+      double c1 = x0 - c2;
+      return c1 * r1 * Math.exp(r1 * t) + c2 * r2 * Math.exp(r2 * t);
+    }
+  }
+
+  /**
+   * Returns a time after which the spring is guaranteed to stay within the given thresholds of
+   * its end value and of zero velocity, or {@link Double#POSITIVE_INFINITY} if it never comes to
+   * rest. A spring without tension only needs to slow down.
+   * <p>
+   * The time is found on the exponential envelopes of the displacement and velocity, so it is an
+   * upper bound: an underdamped spring may pass through the thresholds earlier.
+   */
+  static double restTime(
+    double k, double c, double x0, double v0, double displacementThreshold, double speedThreshold) {
+    if (k == 0) {
+      if (Math.abs(v0) <= speedThreshold) {
+        return 0;
+      }
+      return c <= 0 ? Double.POSITIVE_INFINITY : Math.log(Math.abs(v0) / speedThreshold) / c;
+    }
+    if (c <= 0) {
+      return Double.POSITIVE_INFINITY;
+    }
+
+    if (isWithinEnvelope(k, c, x0, v0, displacementThreshold, speedThreshold, 0)) {
+      return 0;
+    }
+
+    double low = 0;
+    double high = 1 / c;
+    while (!isWithinEnvelope(k, c, x0, v0, displacementThreshold, speedThreshold, high)) {
+      low = high;
+      high *= 2;
+      if (high > MAX_REST_TIME_SEC) {
+        return Double.POSITIVE_INFINITY;
+      }
+    }
+    for (int i = 0; i < REST_TIME_ITERATIONS; i++) {
+      double mid = (low + high) / 2;
+      if (isWithinEnvelope(k, c, x0, v0, displacementThreshold, speedThreshold, mid)) {
+        high = mid;
+      } else {
+        low = mid;
+      }
+    }
+    return high;
+  }
+
+  private static boolean isWithinEnvelope(
+    double k, double c, double x0, double v0,
+    double displacementThreshold, double speedThreshold, double t) {
+    double w0 = Math.sqrt(k);
+    double zeta = c / (2 * w0);
+
+    double displacement;
+    double speed;
+    if (Math.abs(zeta - 1) < CRITICAL_EPSILON) {
+      double b = v0 + w0 * x0;
+      double decay = Math.exp(-w0 * t);
+      displacement = (Math.abs(x0) + Math.abs(b) * t) * decay;
+      speed = (Math.abs(b - w0 * x0) + w0 * Math.abs(b) * t) * decay;
+    } else if (zeta < 1) {
+      double sigma = zeta * w0;
+      double wd = w0 * Math.sqrt(1 - zeta * zeta);
+      double q = (v0 + sigma * x0) / wd;
+      double decay = Math.exp(-sigma * t);
+      displacement = Math.hypot(x0, q) * decay;
+      speed = Math.hypot(v0, sigma * q + wd * x0) * decay;
+    } else {
+      double root = w0 * Math.sqrt(zeta * zeta - 1);
+      double r1 = -zeta * w0 + root;
+      double r2 = -zeta * w0 - root;
+      double c2 = (v0 - r1 * x0) / (r2 - r1);
+      double c1 = x0 - c2;
+      double decay = Math.exp(r1 * t);
+      displacement = (Math.abs(c1) + Math.abs(c2)) * decay;
+      speed = (Math.abs(c1 * r1) + Math.abs(c2 * r2)) * decay;
+    }
+    return displacement <= displacementThreshold && speed <= speedThreshold;
+  }
+
+  private SpringMath() {
+  }
+}
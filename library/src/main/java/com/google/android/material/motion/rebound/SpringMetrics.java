@@ -0,0 +1,323 @@
+/*
+ * Copyright 2017-present The Material Motion Authors. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.material.motion.rebound;
+
+import com.facebook.rebound.BaseSpringSystem;
+import com.facebook.rebound.SpringSystemListener;
+
+import java.util.IdentityHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Collects per-frame metrics of rebound spring systems and the composite springs they drive.
+ * <p>
+ * Metrics are opt-in: a {@link CompositeReboundSpring} only reports to metrics set with
+ * {@link CompositeReboundSpring#setMetrics(SpringMetrics)}, and a spring system only reports once
+ * {@link #attach(BaseSpringSystem) attached}. {@link ReboundSpringSource.SystemBuilder#setMetrics}
+ * does both for every source it creates. Without metrics, the instrumented code paths only test a
+ * field for null.
+ * <p>
+ * Measurements are aggregated into {@link Histogram}s with power of two buckets, so recording is
+ * a handful of arithmetic operations and never allocates. Use {@link #dump()} to print them, for
+ * example from a debug menu.
+ * <p>
+ * Spring metrics are not thread safe. They must only be used from the thread that the measured
+ * spring systems loop on.
+ */
+public final class SpringMetrics {
+
+  private final Histogram integrationNanos = new Histogram();
+  private final Histogram aggregationNanos = new Histogram();
+  private final Histogram dispatchNanos = new Histogram();
+  private final Histogram latencyNanos = new Histogram();
+  private final Histogram activeSprings = new Histogram();
+  private final Histogram activeComposites = new Histogram();
+  private long slippedBatches;
+  private final Map<BaseSpringSystem, Integer> attachCounts = new IdentityHashMap<>();
+
+  private long frame;
+  private long frameStartNanos;
+  private boolean integrating;
+  private int frameSpringUpdates;
+  private int frameBatches;
+
+  /**
+   * Measures the frames of the given spring system. Every call must be balanced by a call to
+   * {@link #detach(BaseSpringSystem)}, so that sources sharing metrics and a spring system can
+   * attach it independently.
+   */
+  public void attach(BaseSpringSystem springSystem) {
+    Integer count = attachCounts.get(springSystem);
+    if (count == null) {
+      springSystem.addListener(systemListener);
+      attachCounts.put(springSystem, 1);
+    } else {
+      attachCounts.put(springSystem, count + 1);
+    }
+  }
+
+  /**
+   * Stops measuring the frames of the given spring system once every call to
+   * {@link #attach(BaseSpringSystem)} has been balanced.
+   */
+  public void detach(BaseSpringSystem springSystem) {
+    Integer count = attachCounts.get(springSystem);
+    if (count == null) {
+      return;
+    }
+    if (count == 1) {
+      springSystem.removeListener(systemListener);
+      attachCounts.remove(springSystem);
+    } else {
+      attachCounts.put(springSystem, count - 1);
+    }
+  }
+
+  /**
+   * Returns the time each frame spent integrating springs, in nanoseconds.
+   */
+  public Histogram getIntegrationNanos() {
+    flushFrame();
+    return integrationNanos;
+  }
+
+  /**
+   * Returns the time each composite spring batch spent aggregating individual spring changes, in
+   * nanoseconds.
+   */
+  public Histogram getAggregationNanos() {
+    return aggregationNanos;
+  }
+
+  /**
+   * Returns the time each composite spring batch spent notifying its listeners, including the
+   * observers of spring sources, in nanoseconds.
+   */
+  public Histogram getDispatchNanos() {
+    return dispatchNanos;
+  }
+
+  /**
+   * Returns the delay between the first individual spring update of each batch and the
+   * composite spring update that published it, in nanoseconds.
+   */
+  public Histogram getLatencyNanos() {
+    return latencyNanos;
+  }
+
+  /**
+   * Returns the number of individual spring updates in each frame, i.e. the number of active
+   * springs that belong to measured composite springs.
+   */
+  public Histogram getActiveSprings() {
+    flushFrame();
+    return activeSprings;
+  }
+
+  /**
+   * Returns the number of composite spring batches processed in each frame.
+   */
+  public Histogram getActiveComposites() {
+    flushFrame();
+    return activeComposites;
+  }
+
+  /**
+   * Returns the number of composite spring batches that were processed after the frame that
+   * produced them had ended. Only deferred composite springs can slip.
+   */
+  public long getSlippedBatchCount() {
+    return slippedBatches;
+  }
+
+  /**
+   * Clears every measurement.
+   */
+  public void reset() {
+    integrationNanos.reset();
+    aggregationNanos.reset();
+    dispatchNanos.reset();
+    latencyNanos.reset();
+    activeSprings.reset();
+    activeComposites.reset();
+    slippedBatches = 0;
+    frameSpringUpdates = 0;
+    frameBatches = 0;
+  }
+
+  /**
+   * Returns a human readable summary of every measurement.
+   */
+  public String dump() {
+    flushFrame();
+    StringBuilder builder = new StringBuilder();
+    builder.append("integration ns: ").append(integrationNanos).append('\n');
+    builder.append("aggregation ns: ").append(aggregationNanos).append('\n');
+    builder.append("dispatch ns: ").append(dispatchNanos).append('\n');
+    builder.append("latency ns: ").append(latencyNanos).append('\n');
+    builder.append("active springs: ").append(activeSprings).append('\n');
+    builder.append("active composites: ").append(activeComposites).append('\n');
+    builder.append("slipped batches: ").append(slippedBatches).append('\n');
+    return builder.toString();
+  }
+
+  long getFrame() {
+    return frame;
+  }
+
+  void onSpringUpdate() {
+    frameSpringUpdates++;
+  }
+
+  /**
+   * Called when a composite spring starts processing a batch. The first batch of a frame ends the
+   * frame's integration, even if this metrics' own system listener has not been called yet.
+   */
+  void onBatchStart(long batchFrame) {
+    endIntegration();
+    frameBatches++;
+    if (batchFrame != frame) {
+      slippedBatches++;
+    }
+  }
+
+  void recordAggregation(long nanos) {
+    aggregationNanos.record(nanos);
+  }
+
+  void recordDispatch(long nanos) {
+    dispatchNanos.record(nanos);
+  }
+
+  void recordLatency(long nanos) {
+    latencyNanos.record(nanos);
+  }
+
+  private void endIntegration() {
+    if (integrating) {
+      integrating = false;
+      integrationNanos.record(System.nanoTime() - frameStartNanos);
+    }
+  }
+
+  /**
+   * Records the per-frame counts of the last frame. Batches of deferred composite springs are
+   * processed after their frame, so a frame is only complete once the next one starts.
+   */
+  private void flushFrame() {
+    if (frameSpringUpdates > 0 || frameBatches > 0) {
+      activeSprings.record(frameSpringUpdates);
+      activeComposites.record(frameBatches);
+      frameSpringUpdates = 0;
+      frameBatches = 0;
+    }
+  }
+
+  private final SpringSystemListener systemListener = new SpringSystemListener() {
+    @Override
+    public void onBeforeIntegrate(BaseSpringSystem springSystem) {
+      flushFrame();
+      frame++;
+      integrating = true;
+      frameStartNanos = System.nanoTime();
+    }
+
+    @Override
+    public void onAfterIntegrate(BaseSpringSystem springSystem) {
+      endIntegration();
+    }
+  };
+
+  /**
+   * A histogram of non-negative values with one bucket per power of two.
+   */
+  public static final class Histogram {
+
+    private static final int BUCKET_COUNT = 64;
+
+    private final long[] buckets = new long[BUCKET_COUNT];
+    private long count;
+    private long sum;
+    private long max;
+
+    /**
+     * Records a value. Negative values are recorded as zero.
+     */
+    public void record(long value) {
+      value = Math.max(0, value);
+      buckets[BUCKET_COUNT - Long.numberOfLeadingZeros(value)]++;
+      count++;
+      sum += value;
+      max = Math.max(max, value);
+    }
+
+    /**
+     * Returns the number of recorded values.
+     */
+    public long getCount() {
+      return count;
+    }
+
+    /**
+     * Returns the largest recorded value.
+     */
+    public long getMax() {
+      return max;
+    }
+
+    /**
+     * Returns the exact mean of the recorded values.
+     */
+    public double getMean() {
+      return count == 0 ? 0 : (double) sum / count;
+    }
+
+    /**
+     * Returns an upper bound of the given percentile, between 0 and 100, of the recorded values.
+     * The bound is exact to within a factor of two.
+     */
+    public long getPercentile(double percentile) {
+      long rank = (long) Math.ceil(count * percentile / 100);
+      long seen = 0;
+      for (int i = 0; i < BUCKET_COUNT; i++) {
+        seen += buckets[i];
+        if (seen >= rank && seen > 0) {
+          return Math.min(max, i == 0 ? 0 : (1L << i) - 1);
+        }
+      }
+      return max;
+    }
+
+    /**
+     * Clears every recorded value.
+     */
+    public void reset() {
+      for (int i = 0; i < BUCKET_COUNT; i++) {
+        buckets[i] = 0;
+      }
+      count = 0;
+      sum = 0;
+      max = 0;
+    }
+
+    @Override
+    public String toString() {
+      return String.format(Locale.US, "count=%d mean=%.1f p50<=%d p90<=%d p99<=%d max=%d",
+        count, getMean(), getPercentile(50), getPercentile(90), getPercentile(99), max);
+    }
+  }
+}
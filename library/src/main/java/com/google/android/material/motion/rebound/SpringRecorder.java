@@ -0,0 +1,149 @@
+/*
+ * Copyright 2017-present The Material Motion Authors. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.material.motion.rebound;
+
+import com.facebook.rebound.Spring;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Records the batches that a {@link CompositeReboundSpring} publishes, in the compact binary format
+ * of {@link SpringRecording}: a timestamp, the aggregate events, the updated components, and the
+ * value and velocity of every component.
+ * <p>
+ * The recorder appends to a buffer that is allocated up front for a fixed number of records, so
+ * recording a batch costs a bounded number of writes and never allocates. Batches published once
+ * the buffer is full are counted and dropped. Attach a recorder with
+ * {@link CompositeReboundSpring#setRecorder(SpringRecorder)}, and save it with
+ * {@link #writeTo(WritableByteChannel)} or read it back with {@link #getRecording()}.
+ */
+public final class SpringRecorder {
+
+  private final int length;
+  private final int recordSize;
+  private final int maskWords;
+  private final ByteBuffer buffer;
+
+  private int recordCount;
+  private long droppedRecordCount;
+
+  /**
+   * Creates a recorder for a composite spring with the given number of components, with room for
+   * the given number of records.
+   */
+  public SpringRecorder(int length, int capacity) {
+    this.length = length;
+    this.recordSize = SpringRecording.getRecordSize(length);
+    this.maskWords = (length + 63) >>> 6;
+    if (capacity < 0
+      || (long) capacity * recordSize > Integer.MAX_VALUE - SpringRecording.HEADER_SIZE) {
+      throw new IllegalArgumentException("Invalid recorder capacity: " + capacity);
+    }
+
+    buffer = ByteBuffer.allocateDirect(SpringRecording.HEADER_SIZE + capacity * recordSize);
+    buffer.putInt(0, SpringRecording.MAGIC);
+    buffer.putInt(4, SpringRecording.VERSION);
+    buffer.putInt(8, length);
+    buffer.putInt(12, recordSize);
+  }
+
+  /**
+   * Returns the number of components of each record.
+   */
+  public int getLength() {
+    return length;
+  }
+
+  /**
+   * Returns the number of recorded batches.
+   */
+  public int getRecordCount() {
+    return recordCount;
+  }
+
+  /**
+   * Returns the number of batches that were dropped because the recorder was full.
+   */
+  public long getDroppedRecordCount() {
+    return droppedRecordCount;
+  }
+
+  /**
+   * Discards every record.
+   */
+  public void clear() {
+    recordCount = 0;
+    droppedRecordCount = 0;
+  }
+
+  /**
+   * Returns a read-only view of the records so far. Later records are not part of the view.
+   */
+  public SpringRecording getRecording() {
+    return new SpringRecording(view());
+  }
+
+  /**
+   * Writes the records so far to the channel, in the format read by
+   * {@link SpringRecording#map(java.io.File)}.
+   */
+  public void writeTo(WritableByteChannel channel) throws IOException {
+    ByteBuffer view = view();
+    while (view.hasRemaining()) {
+      channel.write(view);
+    }
+  }
+
+  /**
+   * Appends a record of a batch. The springs are read for their velocities.
+   */
+  void record(long timeNanos, int events, float[] values, ComponentMask updated, Spring[] springs) {
+    int offset = SpringRecording.HEADER_SIZE + recordCount * recordSize;
+    if (offset + recordSize > buffer.capacity()) {
+      droppedRecordCount++;
+      return;
+    }
+
+    buffer.putLong(offset, timeNanos);
+    buffer.putInt(offset + 8, events);
+    offset += 12;
+    for (int w = 0; w < maskWords; w++) {
+      long word = 0;
+      for (int i = w << 6, end = Math.min(length, i + 64); i < end; i++) {
+        if (updated.isSet(i)) {
+          word |= 1L << (i & 63);
+        }
+      }
+      buffer.putLong(offset, word);
+      offset += 8;
+    }
+    for (int i = 0; i < length; i++) {
+      buffer.putFloat(offset, values[i]);
+      buffer.putFloat(offset + 4, (float) springs[i].getVelocity());
+      offset += 8;
+    }
+    recordCount++;
+  }
+
+  private ByteBuffer view() {
+    ByteBuffer view = buffer.duplicate();
+    view.position(0);
+    view.limit(SpringRecording.HEADER_SIZE + recordCount * recordSize);
+    return view.asReadOnlyBuffer();
+  }
+}
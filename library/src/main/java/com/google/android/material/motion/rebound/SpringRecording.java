@@ -0,0 +1,197 @@
+/*
+ * Copyright 2017-present The Material Motion Authors. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.material.motion.rebound;
+
+import com.google.android.material.motion.rebound.CompositeReboundSpring.CompositeSpringListener;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * A read-only recording of the batches of a composite spring, made by a {@link SpringRecorder}.
+ * <p>
+ * The format is a 16 byte header followed by fixed-width records, one per batch, in big-endian
+ * byte order:
+ * <pre>
+ * header: int magic, int version, int component count (n), int record size
+ * record: long timestamp in nanoseconds, int events, long[(n + 63) / 64] updated components mask,
+ *         n * (float value, float velocity)
+ * </pre>
+ * Because records are fixed-width, a recording can be memory-mapped and any record read directly.
+ */
+public final class SpringRecording {
+
+  /**
+   * The composite spring activated in the batch.
+   */
+  public static final int EVENT_ACTIVATE = 1;
+  /**
+   * Some components updated in the batch.
+   */
+  public static final int EVENT_UPDATE = 1 << 1;
+  /**
+   * The composite spring came to rest in the batch.
+   */
+  public static final int EVENT_AT_REST = 1 << 2;
+
+  static final int MAGIC = 0x53505247;
+  static final int VERSION = 1;
+  static final int HEADER_SIZE = 16;
+
+  private static final int TIMESTAMP_OFFSET = 0;
+  private static final int EVENTS_OFFSET = 8;
+  private static final int MASK_OFFSET = 12;
+
+  /**
+   * Maps the recording in the given file into memory.
+   */
+  public static SpringRecording map(File file) throws IOException {
+    RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+    try {
+      FileChannel channel = randomAccessFile.getChannel();
+      return new SpringRecording(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+    } finally {
+      randomAccessFile.close();
+    }
+  }
+
+  /**
+   * Returns the size of a record of the given number of components, in bytes.
+   */
+  static int getRecordSize(int length) {
+    return MASK_OFFSET + getMaskWords(length) * 8 + length * 8;
+  }
+
+  private static int getMaskWords(int length) {
+    return (length + 63) >>> 6;
+  }
+
+  private final ByteBuffer buffer;
+  private final int length;
+  private final int recordSize;
+  private final int recordCount;
+  private final int valuesOffset;
+
+  /**
+   * Reads a recording from the given buffer, from its position to its limit.
+   */
+  public SpringRecording(ByteBuffer buffer) {
+    this.buffer = buffer.slice();
+    if (this.buffer.remaining() < HEADER_SIZE
+      || this.buffer.getInt(0) != MAGIC || this.buffer.getInt(4) != VERSION) {
+      throw new IllegalArgumentException("Not a spring recording.");
+    }
+
+    this.length = this.buffer.getInt(8);
+    this.recordSize = this.buffer.getInt(12);
+    if (length < 0 || recordSize != getRecordSize(length)) {
+      throw new IllegalArgumentException("Corrupt spring recording header.");
+    }
+    this.recordCount = (this.buffer.remaining() - HEADER_SIZE) / recordSize;
+    this.valuesOffset = MASK_OFFSET + getMaskWords(length) * 8;
+  }
+
+  /**
+   * Returns the number of components of the recorded composite spring.
+   */
+  public int getLength() {
+    return length;
+  }
+
+  /**
+   * Returns the number of recorded batches.
+   */
+  public int getRecordCount() {
+    return recordCount;
+  }
+
+  /**
+   * Returns the {@link System#nanoTime()} at which the given batch was published.
+   */
+  public long getTimestampNanos(int record) {
+    return buffer.getLong(offset(record) + TIMESTAMP_OFFSET);
+  }
+
+  /**
+   * Returns the {@code EVENT_*} flags of the given batch.
+   */
+  public int getEvents(int record) {
+    return buffer.getInt(offset(record) + EVENTS_OFFSET);
+  }
+
+  /**
+   * Returns whether the given component updated in the given batch.
+   */
+  public boolean isUpdated(int record, int component) {
+    long word = buffer.getLong(offset(record) + MASK_OFFSET + (component >>> 6) * 8);
+    return (word & (1L << (component & 63))) != 0;
+  }
+
+  /**
+   * Returns the value of the given component at the end of the given batch.
+   */
+  public float getValue(int record, int component) {
+    return buffer.getFloat(offset(record) + valuesOffset + component * 8);
+  }
+
+  /**
+   * Returns the velocity of the given component at the end of the given batch, in units per
+   * second.
+   */
+  public float getVelocity(int record, int component) {
+    return buffer.getFloat(offset(record) + valuesOffset + component * 8 + 4);
+  }
+
+  /**
+   * Feeds every recorded batch to the listener, in order and as fast as possible, as the composite
+   * spring published it. The values array and mask are reused across calls.
+   */
+  public void replay(CompositeSpringListener listener) {
+    float[] values = new float[length];
+    ComponentMask updated = new ComponentMask(length);
+
+    for (int record = 0; record < recordCount; record++) {
+      int events = getEvents(record);
+      if ((events & EVENT_ACTIVATE) != 0) {
+        listener.onCompositeSpringActivate();
+      }
+      if ((events & EVENT_UPDATE) != 0) {
+        for (int i = 0; i < length; i++) {
+          values[i] = getValue(record, i);
+          if (isUpdated(record, i)) {
+            updated.set(i);
+          } else {
+            updated.clear(i);
+          }
+        }
+        listener.onCompositeSpringUpdate(values, updated);
+      }
+      if ((events & EVENT_AT_REST) != 0) {
+        listener.onCompositeSpringAtRest();
+      }
+    }
+  }
+
+  private int offset(int record) {
+    if (record < 0 || record >= recordCount) {
+      throw new IndexOutOfBoundsException("Record " + record + " of " + recordCount);
+    }
+    return HEADER_SIZE + record * recordSize;
+  }
+}
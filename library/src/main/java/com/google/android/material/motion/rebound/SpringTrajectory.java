@@ -0,0 +1,142 @@
+/*
+ * Copyright 2017-present The Material Motion Authors. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.material.motion.rebound;
+
+import java.util.Arrays;
+
+/**
+ * The precomputed trajectory of a spring that moves from 0 to 1, sampled at a fixed interval.
+ * <p>
+ * Springs are linear, so the trajectory of any transition with the same tension, friction and
+ * initial velocity relative to its distance is this trajectory scaled by the distance. Positions
+ * between samples are interpolated with cubic Hermite splines over the sampled positions and
+ * velocities.
+ */
+final class SpringTrajectory {
+
+  static final double SAMPLE_INTERVAL_SEC = 0.008;
+  static final double MAX_DURATION_SEC = 30;
+
+  /**
+   * The distance from 1 at which the normalized spring is considered at rest. Much tighter than a
+   * rebound spring's threshold, so that the trajectory can be scaled to long distances.
+   */
+  private static final double REST_THRESHOLD = 0.000001;
+
+  /**
+   * Interleaved positions and velocities, two floats per sample.
+   */
+  private final float[] samples;
+  private final int sampleCount;
+
+  private SpringTrajectory(float[] samples) {
+    this.samples = samples;
+    this.sampleCount = samples.length / 2;
+  }
+
+  /**
+   * Integrates a spring from 0 to 1 with the given config and normalized initial velocity. Returns
+   * null if the spring does not come to rest in {@link #MAX_DURATION_SEC}.
+   */
+  static SpringTrajectory compute(double tension, double friction, double velocity) {
+    int maxSamples = (int) (MAX_DURATION_SEC / SAMPLE_INTERVAL_SEC) + 1;
+    int stepsPerSample =
+      (int) Math.round(SAMPLE_INTERVAL_SEC / BatchedSpringSystem.SOLVER_TIMESTEP_SEC);
+    double dt = BatchedSpringSystem.SOLVER_TIMESTEP_SEC;
+
+    float[] samples = new float[64];
+    double position = 0;
+    for (int sample = 0; sample < maxSamples; sample++) {
+      if (samples.length < (sample + 1) * 2) {
+        samples = Arrays.copyOf(samples, samples.length * 2);
+      }
+      samples[sample * 2] = (float) position;
+      samples[sample * 2 + 1] = (float) velocity;
+
+      if (Math.abs(1 - position) <= REST_THRESHOLD && Math.abs(velocity) <= REST_THRESHOLD) {
+        return new SpringTrajectory(Arrays.copyOf(samples, (sample + 1) * 2));
+      }
+
+      for (int step = 0; step < stepsPerSample; step++) {
+        double aVelocity = velocity;
+        double aAcceleration = tension * (1 - position) - friction * velocity;
+
+        double bVelocity = velocity + aAcceleration * dt * 0.5;
+        double bAcceleration =
+          tension * (1 - (position + aVelocity * dt * 0.5)) - friction * bVelocity;
+
+        double cVelocity = velocity + bAcceleration * dt * 0.5;
+        double cAcceleration =
+          tension * (1 - (position + bVelocity * dt * 0.5)) - friction * cVelocity;
+
+        double dVelocity = velocity + cAcceleration * dt;
+        double dAcceleration = tension * (1 - (position + cVelocity * dt)) - friction * dVelocity;
+
+        position += 1.0 / 6.0 * (aVelocity + 2.0 * (bVelocity + cVelocity) + dVelocity) * dt;
+        velocity +=
+          1.0 / 6.0 * (aAcceleration + 2.0 * (bAcceleration + cAcceleration) + dAcceleration) * dt;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Returns the time at which the normalized spring comes to rest at 1.
+   */
+  double getDuration() {
+    return (sampleCount - 1) * SAMPLE_INTERVAL_SEC;
+  }
+
+  /**
+   * Returns the normalized position at the given time. Clamps to 1 past the end.
+   */
+  double getPosition(double time) {
+    int index = (int) (time / SAMPLE_INTERVAL_SEC);
+    if (index >= sampleCount - 1) {
+      return 1;
+    }
+    double s = time / SAMPLE_INTERVAL_SEC - index;
+    double s2 = s * s;
+    double s3 = s2 * s;
+
+    int a = index * 2;
+    int b = a + 2;
+    return (2 * s3 - 3 * s2 + 1) * samples[a]
+      + (s3 - 2 * s2 + s) * SAMPLE_INTERVAL_SEC * samples[a + 1]
+      + (-2 * s3 + 3 * s2) * samples[b]
+      + (s3 - s2) * SAMPLE_INTERVAL_SEC * samples[b + 1];
+  }
+
+  /**
+   * Returns the normalized velocity at the given time, in units per second. Clamps to 0 past the
+   * end.
+   */
+  double getVelocity(double time) {
+    int index = (int) (time / SAMPLE_INTERVAL_SEC);
+    if (index >= sampleCount - 1) {
+      return 0;
+    }
+    double s = time / SAMPLE_INTERVAL_SEC - index;
+    double s2 = s * s;
+
+    int a = index * 2;
+    int b = a + 2;
+    return ((6 * s2 - 6 * s) * samples[a] + (-6 * s2 + 6 * s) * samples[b])
+      / SAMPLE_INTERVAL_SEC
+      + (3 * s2 - 4 * s + 1) * samples[a + 1]
+      + (3 * s2 - 2 * s) * samples[b + 1];
+  }
+}
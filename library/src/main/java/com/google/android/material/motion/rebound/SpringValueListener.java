@@ -0,0 +1,33 @@
+/*
+ * Copyright 2017-present The Material Motion Authors. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.material.motion.rebound;
+
+/**
+ * A listener for the raw float values of a vector-valued spring, for consumers that draw or upload
+ * the components directly and do not need them composed into a typed value.
+ */
+public interface SpringValueListener {
+
+  /**
+   * Some components have updated. The values array holds every component and the mask holds the
+   * indices of the components that updated since the previous call. Both are owned by the spring,
+   * must not be modified, and are only valid for the duration of the call.
+   * <p>
+   * A listener that is added while the spring is animating should redraw every component on its
+   * first call.
+   */
+  void onSpringValuesUpdate(float[] values, ComponentMask updated);
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright 2017-present The Material Motion Authors. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.material.motion.rebound;
+
+import com.facebook.rebound.BaseSpringSystem;
+import com.facebook.rebound.SpringLooper;
+
+/**
+ * A spring looper that loops its spring system only when it is explicitly stepped.
+ * <p>
+ * The looper has no dependency on a display, {@link android.os.Looper} or wall clock time, so it
+ * can drive springs headlessly on any thread and at any speed: to precompute trajectories, to
+ * render frames offscreen, or to fast-forward springs in tests. It works with both rebound spring
+ * systems and {@link BatchedSpringSystem}.
+ * <p>
+ * To drive {@link ReboundSpringSource}s, create them with the shared spring system returned by
+ * {@link #createSharedSpringSystem()}. Aggregate updates are then published from within
+ * {@link #step(double)}, on the stepping thread. The looper, its spring system and the sources
+ * using them must all be confined to one thread at a time.
+ */
+public final class SteppingSpringLooper extends SpringLooper {
+
+  /**
+   * The duration of a frame at 60 frames per second.
+   */
+  public static final double DEFAULT_FRAME_MILLIS = 1000.0 / 60;
+
+  private boolean running;
+  private double elapsedMillis;
+
+  /**
+   * Returns a shared spring system whose spring systems are stepped by this looper.
+   */
+  public SharedSpringSystem createSharedSpringSystem() {
+    return new SharedSpringSystem(new SharedSpringSystem.Factory() {
+      @Override
+      public BaseSpringSystem createSpringSystem() {
+        return new BaseSpringSystem(SteppingSpringLooper.this);
+      }
+    });
+  }
+
+  @Override
+  public void start() {
+    running = true;
+  }
+
+  @Override
+  public void stop() {
+    running = false;
+  }
+
+  /**
+   * Returns whether the spring system has active springs and wants to be stepped.
+   */
+  public boolean isRunning() {
+    return running;
+  }
+
+  /**
+   * Returns the total time that this looper has stepped its spring system by.
+   */
+  public double getElapsedMillis() {
+    return elapsedMillis;
+  }
+
+  /**
+   * Loops the spring system once, advancing its springs by the given time. Does nothing if the
+   * spring system is idle.
+   */
+  public void step(double deltaMillis) {
+    if (running) {
+      elapsedMillis += deltaMillis;
+      mSpringSystem.loop(deltaMillis);
+    }
+  }
+
+  /**
+   * Steps the spring system by frames of the given duration until it is idle, or until the given
+   * number of frames has been stepped. Returns the number of frames stepped.
+   */
+  public int runUntilIdle(double frameMillis, int maxFrames) {
+    int frames = 0;
+    while (running && frames < maxFrames) {
+      step(frameMillis);
+      frames++;
+    }
+    return frames;
+  }
+}
@@ -0,0 +1,421 @@
+/*
+ * Copyright 2017-present The Material Motion Authors. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.material.motion.rebound;
+
+import android.support.annotation.VisibleForTesting;
+
+import com.facebook.rebound.BaseSpringSystem;
+import com.facebook.rebound.Spring;
+import com.facebook.rebound.SpringConfig;
+import com.google.android.indefinite.observable.IndefiniteObservable.Subscription;
+import com.google.android.material.motion.MotionObserver;
+import com.google.android.material.motion.MotionObserver.SimpleMotionObserver;
+import com.google.android.material.motion.MotionState;
+import com.google.android.material.motion.interactions.MaterialSpring;
+import com.google.android.material.motion.rebound.CompositeReboundSpring.CompositeSpringListener;
+import com.google.android.material.motion.rebound.SpringFrameBuffer.Frame;
+import com.google.android.material.motion.sources.SpringSource;
+
+/**
+ * A source for rebound springs that are simulated on a {@link SimulationThread}.
+ * <p>
+ * Like {@link ReboundSpringSource}, this source vectorizes T into floats and animates each
+ * component with its own rebound spring, but the springs are leased, configured and integrated on
+ * the simulation thread, together with the aggregation of their state. After each step, the
+ * simulation writes the values and state of the composite spring into a lock-free
+ * {@link SpringFrameBuffer}. The main thread reads the latest frame at vsync and delivers it, so
+ * its cost per frame is a buffer swap, the composition of T and the observers' property writes.
+ * <p>
+ * Interaction changes are forwarded to the simulation thread as commands. Destination, tension and
+ * friction changes are coalesced, so only their latest values are applied. State transitions are
+ * written to {@link MaterialSpring#state} in the order they happened, even when the main thread
+ * skips frames: a spring that activated and came to rest between two reads is still reported as
+ * active, then at rest.
+ */
+public final class ThreadedSpringSource<T> extends SpringSource<T> {
+
+  private static final int COMMAND_CONFIG = 1;
+  private static final int COMMAND_END_VALUES = 1 << 1;
+
+  private final SimulationThread simulationThread;
+  private final MaterialSpring<?, T> interaction;
+  private final int length;
+
+  private final ObserverList<T> observers = new ObserverList<>();
+  private final ValueComposer<T> composer;
+  private final SpringFrameBuffer buffer;
+  private final Simulation simulation;
+
+  // Main thread state.
+  private FrameScheduler scheduler;
+  private final float[] scratchValues;
+  private Subscription destinationSubscription;
+  private Subscription frictionSubscription;
+  private Subscription tensionSubscription;
+  private boolean enabled;
+  private boolean polling;
+  private boolean active;
+  private long sequence;
+  private long enabledSequence;
+  private long readSequence;
+  private boolean readAtRest;
+  private long readActivations;
+  private long readUpdates;
+  private long readRests;
+
+  // Commands that wait for the simulation thread. Guarded by pendingLock. Commands are tagged with
+  // the sequence of the enable that recorded them, so that a runnable posted before the source was
+  // disabled and enabled again does not apply them to the springs of the previous enable.
+  private final Object pendingLock = new Object();
+  private final float[] pendingEndValues;
+  private float pendingTension;
+  private float pendingFriction;
+  private int pendingCommands;
+  private long pendingSequence;
+  private long pendingEnableSequence;
+  private boolean commandsPosted;
+
+  public ThreadedSpringSource(MaterialSpring<?, T> interaction, SimulationThread simulationThread) {
+    super(interaction);
+    this.interaction = interaction;
+    this.simulationThread = simulationThread;
+    this.length = interaction.vectorizer.getVectorLength();
+    this.composer = new ValueComposer<>(interaction.vectorizer);
+    this.buffer = new SpringFrameBuffer(length);
+    this.scratchValues = new float[length];
+    this.pendingEndValues = new float[length];
+    this.simulation = new Simulation();
+  }
+
+  @Override
+  protected void onConnect(MotionObserver<T> observer) {
+    observers.add(observer);
+  }
+
+  @Override
+  protected void onEnable(MotionObserver<T> observer) {
+    if (scheduler == null) {
+      scheduler = FrameScheduler.create(new FrameScheduler.Callback() {
+        @Override
+        public void doFrame(long frameTimeNanos) {
+          readFrame();
+        }
+      });
+    }
+
+    enabled = true;
+    enabledSequence = ++sequence;
+    readSequence = -1;
+    readAtRest = true;
+    readActivations = 0;
+    readUpdates = 0;
+    readRests = 0;
+
+    final long enableSequence = enabledSequence;
+    final float[] initialValues = new float[length];
+    final float[] initialVelocities = new float[length];
+    interaction.vectorizer.vectorize(interaction.initialValue.read(), initialValues);
+    interaction.vectorizer.vectorize(interaction.initialVelocity.read(), initialVelocities);
+    simulationThread.post(new Runnable() {
+      @Override
+      public void run() {
+        simulation.enable(initialValues, initialVelocities, enableSequence);
+      }
+    });
+
+    tensionSubscription = interaction.tension.subscribe(new SimpleMotionObserver<Float>() {
+      @Override
+      public void next(Float value) {
+        synchronized (pendingLock) {
+          pendingTension = value;
+        }
+        postCommand(COMMAND_CONFIG);
+      }
+    });
+    frictionSubscription = interaction.friction.subscribe(new SimpleMotionObserver<Float>() {
+      @Override
+      public void next(Float value) {
+        synchronized (pendingLock) {
+          pendingFriction = value;
+        }
+        postCommand(COMMAND_CONFIG);
+      }
+    });
+    destinationSubscription = interaction.destination.subscribe(new SimpleMotionObserver<T>() {
+      @Override
+      public void next(T value) {
+        interaction.vectorizer.vectorize(value, scratchValues);
+        synchronized (pendingLock) {
+          java.lang.System.arraycopy(scratchValues, 0, pendingEndValues, 0, length);
+        }
+        postCommand(COMMAND_END_VALUES);
+      }
+    });
+
+    startReading();
+  }
+
+  @Override
+  protected void onDisable(MotionObserver<T> observer) {
+    tensionSubscription.unsubscribe();
+    frictionSubscription.unsubscribe();
+    destinationSubscription.unsubscribe();
+
+    enabled = false;
+    sequence++;
+    synchronized (pendingLock) {
+      pendingCommands = 0;
+    }
+    simulationThread.post(new Runnable() {
+      @Override
+      public void run() {
+        simulation.disable();
+      }
+    });
+
+    scheduler.removeFrame();
+    polling = false;
+    if (active) {
+      active = false;
+      interaction.state.write(MotionState.AT_REST);
+    }
+  }
+
+  @Override
+  protected void onDisconnect(MotionObserver<T> observer) {
+    observers.remove(observer);
+  }
+
+  /**
+   * Records a command for the simulation thread, and posts the runnable that applies the recorded
+   * commands unless it is already waiting to run.
+   */
+  private void postCommand(int command) {
+    long sequence = ++this.sequence;
+    boolean post = false;
+    synchronized (pendingLock) {
+      pendingCommands |= command;
+      pendingSequence = sequence;
+      pendingEnableSequence = enabledSequence;
+      if (!commandsPosted) {
+        commandsPosted = true;
+        post = true;
+      }
+    }
+    if (post) {
+      simulationThread.post(applyCommands);
+    }
+    startReading();
+  }
+
+  private void startReading() {
+    if (!polling) {
+      polling = true;
+      scheduler.postFrame();
+    }
+  }
+
+  /**
+   * Reads the latest frame, if any, and publishes its state transitions and values in order. Keeps
+   * reading every frame until the simulation has applied every command and come to rest.
+   */
+  @VisibleForTesting
+  void readFrame() {
+    Frame frame = buffer.read();
+    if (frame != null && frame.sequence >= enabledSequence) {
+      boolean activated = frame.activations != readActivations;
+      boolean rested = frame.rests != readRests;
+
+      if (active && rested && !frame.atRest) {
+        // A rest and a new activation happened since the last read.
+        active = false;
+        interaction.state.write(MotionState.AT_REST);
+      }
+      if (!active && activated) {
+        active = true;
+        interaction.state.write(MotionState.ACTIVE);
+      }
+      if (frame.updates != readUpdates) {
+        observers.next(composer.compose(frame.values));
+      }
+      if (active && frame.atRest) {
+        active = false;
+        interaction.state.write(MotionState.AT_REST);
+      }
+
+      readSequence = frame.sequence;
+      readAtRest = frame.atRest;
+      readActivations = frame.activations;
+      readUpdates = frame.updates;
+      readRests = frame.rests;
+    }
+
+    if (enabled && (readSequence != sequence || !readAtRest || active)) {
+      scheduler.postFrame();
+    } else {
+      polling = false;
+    }
+  }
+
+  private final Runnable applyCommands = new Runnable() {
+    @Override
+    public void run() {
+      simulation.applyCommands(true);
+    }
+  };
+
+  /**
+   * The part of the source that runs on the simulation thread.
+   */
+  private final class Simulation implements CompositeSpringListener {
+
+    private final float[] endValues = new float[length];
+
+    private SharedSpringSystem sharedSpringSystem;
+    private BaseSpringSystem springSystem;
+    private Spring[] springs;
+    private CompositeReboundSpring compositeSpring;
+
+    private long enableSequence;
+    private long appliedSequence;
+    private long activations;
+    private long updates;
+    private long rests;
+
+    void enable(float[] initialValues, float[] initialVelocities, long sequence) {
+      sharedSpringSystem = simulationThread.getSharedSpringSystem();
+      springSystem = sharedSpringSystem.acquire();
+      springs = new Spring[length];
+      for (int i = 0; i < length; i++) {
+        springs[i] = sharedSpringSystem.obtainSpring();
+      }
+      compositeSpring = new CompositeReboundSpring(
+        springSystem, sharedSpringSystem.getFrameCallbacks(), springs);
+      compositeSpring.addListener(this);
+
+      activations = 0;
+      updates = 0;
+      rests = 0;
+      enableSequence = sequence;
+      appliedSequence = sequence;
+
+      for (int i = 0; i < length; i++) {
+        springs[i].setCurrentValue(initialValues[i]);
+        springs[i].setVelocity(initialVelocities[i]);
+      }
+      applyCommands(false);
+    }
+
+    void disable() {
+      compositeSpring.removeListener(this);
+      compositeSpring = null;
+
+      for (int i = 0; i < length; i++) {
+        sharedSpringSystem.recycleSpring(springs[i]);
+      }
+      springs = null;
+
+      sharedSpringSystem.release(springSystem);
+      springSystem = null;
+    }
+
+    /**
+     * Applies the recorded commands, and publishes a frame that acknowledges them. Commands that
+     * were recorded by a later enable than the one that leased the springs are kept for that
+     * enable.
+     */
+    void applyCommands(boolean posted) {
+      int commands;
+      float tension;
+      float friction;
+      synchronized (pendingLock) {
+        if (posted) {
+          commandsPosted = false;
+        }
+        if (springs == null) {
+          return;
+        }
+        commands = pendingEnableSequence == enableSequence ? pendingCommands : 0;
+        if (commands != 0) {
+          pendingCommands = 0;
+          appliedSequence = pendingSequence;
+        }
+        tension = pendingTension;
+        friction = pendingFriction;
+        if ((commands & COMMAND_END_VALUES) != 0) {
+          java.lang.System.arraycopy(pendingEndValues, 0, endValues, 0, length);
+        }
+      }
+
+      if ((commands & COMMAND_CONFIG) != 0) {
+        SpringConfig springConfig = SpringConfigCache.get(tension, friction);
+        for (int i = 0; i < length; i++) {
+          springs[i].setSpringConfig(springConfig);
+        }
+      }
+      if ((commands & COMMAND_END_VALUES) != 0) {
+        for (int i = 0; i < length; i++) {
+          if (springs[i].getEndValue() != endValues[i]) {
+            springs[i].setEndValue(endValues[i]);
+          }
+        }
+      }
+      publish();
+    }
+
+    private void publish() {
+      Frame frame = buffer.getBackFrame();
+      java.lang.System.arraycopy(compositeSpring.getCurrentValues(), 0, frame.values, 0, length);
+      frame.atRest = areSpringsAtRest();
+      frame.activations = activations;
+      frame.updates = updates;
+      frame.rests = rests;
+      frame.sequence = appliedSequence;
+      buffer.publish();
+    }
+
+    /**
+     * Returns whether every spring is at rest, reading the springs directly so that commands that
+     * were applied since the last step are taken into account.
+     */
+    private boolean areSpringsAtRest() {
+      for (int i = 0; i < length; i++) {
+        if (!springs[i].isAtRest()) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    @Override
+    public void onCompositeSpringActivate() {
+      activations++;
+      publish();
+    }
+
+    @Override
+    public void onCompositeSpringUpdate(float[] values, ComponentMask updated) {
+      updates++;
+      publish();
+    }
+
+    @Override
+    public void onCompositeSpringAtRest() {
+      rests++;
+      publish();
+    }
+  }
+}
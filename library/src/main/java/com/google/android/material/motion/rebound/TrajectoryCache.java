@@ -0,0 +1,115 @@
+/*
+ * Copyright 2017-present The Material Motion Authors. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.material.motion.rebound;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A bounded, least recently used cache of precomputed spring trajectories.
+ * <p>
+ * When a {@link BatchedSpringSystem} has a trajectory cache, a component that starts moving from
+ * rest is replayed from a cached trajectory instead of being integrated every frame. Trajectories
+ * are keyed on the spring's tension, friction and initial velocity relative to the distance it
+ * travels, each quantized to {@link #QUANTUM}, so repeated transitions such as expanding and
+ * collapsing the same card share one trajectory regardless of where they start and end.
+ * <p>
+ * A trajectory cache may be shared between spring systems on the same thread.
+ */
+public final class TrajectoryCache {
+
+  /**
+   * The resolution at which spring parameters are matched against cached trajectories.
+   */
+  public static final double QUANTUM = 0.001;
+
+  private final Map<Key, SpringTrajectory> trajectories;
+
+  /**
+   * Creates a trajectory cache that holds up to the given number of trajectories.
+   */
+  public TrajectoryCache(final int maxSize) {
+    trajectories = new LinkedHashMap<Key, SpringTrajectory>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<Key, SpringTrajectory> eldest) {
+        return size() > maxSize;
+      }
+    };
+  }
+
+  /**
+   * Returns the number of cached trajectories.
+   */
+  public int size() {
+    return trajectories.size();
+  }
+
+  /**
+   * Removes every cached trajectory.
+   */
+  public void clear() {
+    trajectories.clear();
+  }
+
+  /**
+   * Returns the trajectory for the given parameters, computing it on a miss. Returns null if a
+   * spring with these parameters never comes to rest.
+   */
+  SpringTrajectory get(double tension, double friction, double normalizedVelocity) {
+    Key key = new Key(quantize(tension), quantize(friction), quantize(normalizedVelocity));
+    SpringTrajectory trajectory = trajectories.get(key);
+    if (trajectory == null && !trajectories.containsKey(key)) {
+      trajectory = SpringTrajectory.compute(
+        key.tension * QUANTUM, key.friction * QUANTUM, key.velocity * QUANTUM);
+      trajectories.put(key, trajectory);
+    }
+    return trajectory;
+  }
+
+  private static long quantize(double value) {
+    return Math.round(value / QUANTUM);
+  }
+
+  private static final class Key {
+
+    private final long tension;
+    private final long friction;
+    private final long velocity;
+
+    private Key(long tension, long friction, long velocity) {
+      this.tension = tension;
+      this.friction = friction;
+      this.velocity = velocity;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (!(o instanceof Key)) {
+        return false;
+      }
+      Key key = (Key) o;
+      return tension == key.tension && friction == key.friction && velocity == key.velocity;
+    }
+
+    @Override
+    public int hashCode() {
+      int result = (int) (tension ^ (tension >>> 32));
+      result = 31 * result + (int) (friction ^ (friction >>> 32));
+      result = 31 * result + (int) (velocity ^ (velocity >>> 32));
+      return result;
+    }
+  }
+}
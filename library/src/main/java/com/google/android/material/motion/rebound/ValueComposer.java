@@ -0,0 +1,51 @@
+/*
+ * Copyright 2017-present The Material Motion Authors. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.material.motion.rebound;
+
+import com.google.android.material.motion.springs.TypeVectorizer;
+
+/**
+ * Composes spring values into a T, reusing a single instance if the vectorizer is a
+ * {@link ReusableTypeVectorizer}.
+ */
+final class ValueComposer<T> {
+
+  private final TypeVectorizer<T> vectorizer;
+  private final ReusableTypeVectorizer<T> reusableVectorizer;
+  private T reusableValue;
+
+  @SuppressWarnings("unchecked")
+  ValueComposer(TypeVectorizer<T> vectorizer) {
+    this.vectorizer = vectorizer;
+    this.reusableVectorizer = vectorizer instanceof ReusableTypeVectorizer
+      ? (ReusableTypeVectorizer<T>) vectorizer : null;
+  }
+
+  /**
+   * Composes the values into a T. Returns the reusable instance if the vectorizer supports it,
+   * otherwise a new instance.
+   */
+  T compose(float[] values) {
+    if (reusableVectorizer != null) {
+      if (reusableValue == null) {
+        reusableValue = reusableVectorizer.newInstance();
+      }
+      reusableVectorizer.composeInto(values, reusableValue);
+      return reusableValue;
+    }
+    return vectorizer.compose(values);
+  }
+}
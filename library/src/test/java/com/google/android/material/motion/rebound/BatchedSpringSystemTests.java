@@ -0,0 +1,293 @@
+/*
+ * Copyright 2017-present The Material Motion Authors. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.material.motion.rebound;
+
+import com.facebook.rebound.BaseSpringSystem;
+import com.facebook.rebound.Spring;
+import com.facebook.rebound.SpringConfig;
+import com.google.android.material.motion.rebound.CompositeReboundSpring.CompositeSpringListener;
+import com.google.android.reactive.motion.rebound.BuildConfig;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import static com.google.common.truth.Truth.assertThat;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21)
+public class BatchedSpringSystemTests {
+
+  private static final SpringConfig CONFIG = SpringConfig.fromOrigamiTensionAndFriction(40, 7);
+
+  @Test
+  public void matchesReboundSprings() {
+    float[] initialValues = {0f, 5f, -3f};
+    float[] initialVelocities = {100f, 0f, -50f};
+    float[] endValues = {600f, 5f, 20f};
+    float[] newEndValues = {100f, 100f, 100f};
+
+    SteppingSpringLooper reboundLooper = new SteppingSpringLooper();
+    BaseSpringSystem reboundSystem = new BaseSpringSystem(reboundLooper);
+    Spring[] reboundSprings = new Spring[endValues.length];
+    for (int i = 0; i < reboundSprings.length; i++) {
+      reboundSprings[i] = reboundSystem.createSpring();
+      reboundSprings[i].setSpringConfig(CONFIG);
+      reboundSprings[i].setCurrentValue(initialValues[i]);
+      reboundSprings[i].setVelocity(initialVelocities[i]);
+      reboundSprings[i].setEndValue(endValues[i]);
+    }
+
+    SteppingSpringLooper batchedLooper = new SteppingSpringLooper();
+    BatchedSpringSystem batchedSystem = new BatchedSpringSystem(batchedLooper);
+    BatchedSpring batchedSpring = batchedSystem.createSpring(endValues.length);
+    batchedSpring.setTensionAndFriction(CONFIG.tension, CONFIG.friction);
+    batchedSpring.setCurrentValues(initialValues);
+    batchedSpring.setVelocities(initialVelocities);
+    batchedSpring.setEndValues(endValues);
+
+    // Uneven frames, a long frame that exceeds the solver's maximum delta and a retarget.
+    for (int frame = 0; frame < 1000 && !batchedSystem.isIdle(); frame++) {
+      double frameMillis = frame == 20 ? 200 : 8 + frame % 17;
+      if (frame == 30) {
+        for (int i = 0; i < reboundSprings.length; i++) {
+          reboundSprings[i].setEndValue(newEndValues[i]);
+        }
+        batchedSpring.setEndValues(newEndValues);
+      }
+
+      reboundLooper.step(frameMillis);
+      batchedLooper.step(frameMillis);
+
+      for (int i = 0; i < reboundSprings.length; i++) {
+        assertThat(batchedSpring.getCurrentValues()[i])
+          .isEqualTo((float) reboundSprings[i].getCurrentValue());
+      }
+    }
+
+    assertThat(batchedSystem.isIdle()).isTrue();
+    assertThat(reboundSystem.getIsIdle()).isTrue();
+    assertThat(batchedSpring.isAtRest()).isTrue();
+    assertThat(batchedSpring.getCurrentValues()).isEqualTo(newEndValues, 0f);
+  }
+
+  @Test
+  public void replaysCachedTrajectoriesCloseToIntegration() {
+    float[] endValues = {600f, -20f};
+
+    SteppingSpringLooper liveLooper = new SteppingSpringLooper();
+    BatchedSpring liveSpring = createSpring(new BatchedSpringSystem(liveLooper), endValues.length);
+
+    TrajectoryCache cache = new TrajectoryCache(4);
+    SteppingSpringLooper replayLooper = new SteppingSpringLooper();
+    BatchedSpringSystem replaySystem = new BatchedSpringSystem(replayLooper);
+    replaySystem.setTrajectoryCache(cache);
+    BatchedSpring replaySpring = createSpring(replaySystem, endValues.length);
+
+    liveSpring.setEndValues(endValues);
+    replaySpring.setEndValues(endValues);
+    // Both components travel with zero initial velocity, so they share one trajectory.
+    assertThat(cache.size()).isEqualTo(1);
+
+    for (int frame = 0; frame < 1000 && !replaySystem.isIdle(); frame++) {
+      double frameMillis = 8 + frame % 17;
+      liveLooper.step(frameMillis);
+      replayLooper.step(frameMillis);
+
+      for (int i = 0; i < endValues.length; i++) {
+        // Rebound's solver lags up to a timestep behind at the end of a frame, which is worth a few
+        // pixels at peak velocity.
+        float tolerance = Math.abs(endValues[i]) * 0.01f;
+        assertThat(replaySpring.getCurrentValues()[i])
+          .isWithin(tolerance).of(liveSpring.getCurrentValues()[i]);
+      }
+    }
+
+    assertThat(replaySystem.isIdle()).isTrue();
+    assertThat(replaySpring.isAtRest()).isTrue();
+    assertThat(replaySpring.getCurrentValues()).isEqualTo(endValues, 0f);
+  }
+
+  @Test
+  public void fallsBackToIntegrationWhenRetargetedMidFlight() {
+    float[] endValues = {100f};
+    float[] newEndValues = {-50f};
+
+    SteppingSpringLooper looper = new SteppingSpringLooper();
+    BatchedSpringSystem springSystem = new BatchedSpringSystem(looper);
+    springSystem.setTrajectoryCache(new TrajectoryCache(4));
+    BatchedSpring spring = createSpring(springSystem, 1);
+
+    spring.setEndValues(endValues);
+    for (int frame = 0; frame < 10; frame++) {
+      looper.step(SteppingSpringLooper.DEFAULT_FRAME_MILLIS);
+    }
+    float retargetedFrom = spring.getCurrentValues()[0];
+    spring.setEndValues(newEndValues);
+
+    looper.step(SteppingSpringLooper.DEFAULT_FRAME_MILLIS);
+    // Continues from where the replay left off instead of jumping.
+    assertThat(spring.getCurrentValues()[0]).isWithin(10f).of(retargetedFrom);
+
+    looper.runUntilIdle(SteppingSpringLooper.DEFAULT_FRAME_MILLIS, 1000);
+    assertThat(spring.isAtRest()).isTrue();
+    assertThat(spring.getCurrentValues()).isEqualTo(newEndValues, 0f);
+  }
+
+  @Test
+  public void analyticSolverMatchesIntegration() {
+    double[][] configs = {
+      {CONFIG.tension, CONFIG.friction},
+      // Critically damped.
+      {100, 20},
+      // Overdamped.
+      {100, 50},
+    };
+    float[] initialVelocities = {-400f};
+    float[] endValues = {300f};
+
+    for (double[] config : configs) {
+      SteppingSpringLooper numericLooper = new SteppingSpringLooper();
+      BatchedSpringSystem numericSystem = new BatchedSpringSystem(numericLooper);
+      BatchedSpring numericSpring = numericSystem.createSpring(1);
+
+      SteppingSpringLooper analyticLooper = new SteppingSpringLooper();
+      BatchedSpringSystem analyticSystem =
+        new BatchedSpringSystem(analyticLooper, BatchedSpringSystem.Solver.ANALYTIC);
+      BatchedSpring analyticSpring = analyticSystem.createSpring(1);
+
+      for (BatchedSpring spring : new BatchedSpring[] {numericSpring, analyticSpring}) {
+        spring.setTensionAndFriction(config[0], config[1]);
+        spring.setVelocities(initialVelocities);
+        spring.setEndValues(endValues);
+      }
+
+      int frames = 0;
+      while (!analyticSystem.isIdle()) {
+        numericLooper.step(SteppingSpringLooper.DEFAULT_FRAME_MILLIS);
+        analyticLooper.step(SteppingSpringLooper.DEFAULT_FRAME_MILLIS);
+        frames++;
+
+        // Rebound's solver lags up to a timestep behind at the end of a frame.
+        assertThat(analyticSpring.getCurrentValues()[0])
+          .isWithin(endValues[0] * 0.02f).of(numericSpring.getCurrentValues()[0]);
+      }
+
+      assertThat(frames).isGreaterThan(1);
+      assertThat(analyticSpring.isAtRest()).isTrue();
+      assertThat(analyticSpring.getCurrentValues()).isEqualTo(endValues, 0f);
+    }
+  }
+
+  @Test
+  public void analyticSolverIsFrameRateIndependent() {
+    float[] endValues = {100f};
+
+    SteppingSpringLooper fastLooper = new SteppingSpringLooper();
+    BatchedSpring fastSpring = createSpring(
+      new BatchedSpringSystem(fastLooper, BatchedSpringSystem.Solver.ANALYTIC), 1);
+    fastSpring.setEndValues(endValues);
+
+    SteppingSpringLooper slowLooper = new SteppingSpringLooper();
+    BatchedSpring slowSpring = createSpring(
+      new BatchedSpringSystem(slowLooper, BatchedSpringSystem.Solver.ANALYTIC), 1);
+    slowSpring.setEndValues(endValues);
+
+    for (int frame = 0; frame < 30; frame++) {
+      fastLooper.step(10);
+    }
+    slowLooper.step(100);
+    slowLooper.step(200);
+
+    assertThat(slowSpring.getCurrentValues()[0])
+      .isWithin(0.0001f).of(fastSpring.getCurrentValues()[0]);
+  }
+
+  @Test
+  public void onlyWakesAndPublishesMovedComponents() {
+    int length = 64;
+    float[] endValues = new float[length];
+
+    TrajectoryCache cache = new TrajectoryCache(4);
+    SteppingSpringLooper looper = new SteppingSpringLooper();
+    BatchedSpringSystem springSystem = new BatchedSpringSystem(looper);
+    springSystem.setTrajectoryCache(cache);
+    BatchedSpring spring = createSpring(springSystem, length);
+    BatchedSpring idleSpring = createSpring(springSystem, length);
+
+    SteppingSpringLooper steadyLooper = new SteppingSpringLooper();
+    BatchedSpringSystem steadySystem = new BatchedSpringSystem(steadyLooper);
+    steadySystem.setTrajectoryCache(cache);
+    BatchedSpring steadySpring = createSpring(steadySystem, length);
+
+    StringBuilder masks = new StringBuilder();
+    spring.setListener(new MaskListener(masks));
+    idleSpring.setListener(new MaskListener(masks));
+
+    endValues[40] = 100f;
+    spring.setEndValues(endValues);
+    steadySpring.setEndValues(endValues);
+    for (int frame = 0; frame < 1000 && !springSystem.isIdle(); frame++) {
+      // Writing the same destination again neither wakes the idle components nor restarts the
+      // moving one.
+      spring.setEndValues(endValues);
+      idleSpring.setEndValues(new float[length]);
+      looper.step(SteppingSpringLooper.DEFAULT_FRAME_MILLIS);
+      steadyLooper.step(SteppingSpringLooper.DEFAULT_FRAME_MILLIS);
+
+      // The last frame deactivates the component without publishing.
+      assertThat(masks.toString().replace("40 ", "")).isEmpty();
+      masks.setLength(0);
+      assertThat(spring.getCurrentValues()[40]).isEqualTo(steadySpring.getCurrentValues()[40]);
+    }
+
+    assertThat(spring.getCurrentValues()).isEqualTo(endValues, 0f);
+    assertThat(springSystem.isIdle()).isTrue();
+    assertThat(idleSpring.isAtRest()).isTrue();
+  }
+
+  private static BatchedSpring createSpring(BatchedSpringSystem springSystem, int length) {
+    BatchedSpring spring = springSystem.createSpring(length);
+    spring.setTensionAndFriction(CONFIG.tension, CONFIG.friction);
+    return spring;
+  }
+
+  private static class MaskListener implements CompositeSpringListener {
+
+    private final StringBuilder masks;
+
+    private MaskListener(StringBuilder masks) {
+      this.masks = masks;
+    }
+
+    @Override
+    public void onCompositeSpringActivate() {
+    }
+
+    @Override
+    public void onCompositeSpringUpdate(float[] values, ComponentMask updated) {
+      for (int i = updated.nextSetIndex(0); i != -1; i = updated.nextSetIndex(i + 1)) {
+        masks.append(i);
+      }
+      masks.append(' ');
+    }
+
+    @Override
+    public void onCompositeSpringAtRest() {
+    }
+  }
+}
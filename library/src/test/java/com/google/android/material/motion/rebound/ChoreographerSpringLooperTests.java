@@ -0,0 +1,143 @@
+/*
+ * Copyright 2017-present The Material Motion Authors. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.material.motion.rebound;
+
+import com.facebook.rebound.BaseSpringSystem;
+import com.facebook.rebound.Spring;
+import com.facebook.rebound.SpringConfig;
+import com.google.android.material.motion.rebound.ChoreographerSpringLooper.ClampListener;
+import com.google.android.reactive.motion.rebound.BuildConfig;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.google.common.truth.Truth.assertThat;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21)
+public class ChoreographerSpringLooperTests {
+
+  private static final long FRAME_NANOS_120_HZ = 1000000000L / 120;
+
+  private ChoreographerSpringLooper looper;
+  private RecordingSpringSystem springSystem;
+  private long frameTimeNanos;
+
+  @Before
+  public void setUp() {
+    looper = new ChoreographerSpringLooper();
+    springSystem = new RecordingSpringSystem(looper);
+    // An undamped spring keeps the spring system, and so the looper, running.
+    Spring spring = springSystem.createSpring();
+    spring.setSpringConfig(new SpringConfig(200, 0));
+    spring.setEndValue(1);
+    frameTimeNanos = System.nanoTime();
+  }
+
+  @Test
+  public void estimatesTheFrameInterval() {
+    runFrames(FRAME_NANOS_120_HZ, 10);
+
+    assertThat(looper.getEstimatedFrameMillis()).isWithin(1e-6).of(FRAME_NANOS_120_HZ / 1e6);
+  }
+
+  @Test
+  public void clampsLongFramesToTheCatchUpBudget() {
+    final List<Double> clamps = new ArrayList<>();
+    looper.setClampListener(new ClampListener() {
+      @Override
+      public void onFrameClamped(double elapsedMillis, double steppedMillis) {
+        clamps.add(elapsedMillis);
+        clamps.add(steppedMillis);
+      }
+    });
+    looper.setCatchUpBudget(3);
+    runFrames(FRAME_NANOS_120_HZ, 10);
+
+    runFrames(200000000L, 1);
+
+    double frameMillis = FRAME_NANOS_120_HZ / 1e6;
+    assertThat(looper.getClampedFrameCount()).isEqualTo(1L);
+    assertThat(clamps.get(0)).isWithin(1e-6).of(200.0);
+    assertThat(clamps.get(1)).isWithin(1e-6).of(3 * frameMillis);
+    assertThat(springSystem.lastLoopMillis).isWithin(1e-6).of(3 * frameMillis);
+    // The pause does not inflate the estimate.
+    assertThat(looper.getEstimatedFrameMillis()).isWithin(1e-6).of(frameMillis);
+  }
+
+  @Test
+  public void adaptiveSteppingIntegratesWholeFrames() {
+    looper.setAdaptiveStepping(true);
+    runFrames(FRAME_NANOS_120_HZ, 10);
+    double frameMillis = looper.getEstimatedFrameMillis();
+    double before = springSystem.totalLoopMillis;
+
+    long[] jitter = {1000000, -1000000, 1500000, -500000, -1000000};
+    for (long offset : jitter) {
+      runFrames(FRAME_NANOS_120_HZ + offset, 1);
+      assertThat(springSystem.lastLoopMillis).isWithin(1e-6).of(frameMillis);
+    }
+    // The jitter cancels out, so the springs are not ahead of or behind the frame timestamps.
+    assertThat(springSystem.totalLoopMillis - before).isWithin(1e-6).of(5 * frameMillis);
+  }
+
+  @Test
+  public void stepsTheFirstFrameAfterStartingByTheEstimatedFrameInterval() {
+    // Vsync timestamps usually precede the time at which the looper was started.
+    looper.doFrame(System.nanoTime() - FRAME_NANOS_120_HZ);
+
+    assertThat(springSystem.lastLoopMillis).isWithin(1e-6).of(looper.getEstimatedFrameMillis());
+    assertThat(springSystem.lastLoopMillis).isGreaterThan(0.0);
+
+    frameTimeNanos = System.nanoTime();
+    runFrames(FRAME_NANOS_120_HZ, 10);
+    looper.stop();
+    looper.start();
+    looper.doFrame(frameTimeNanos - FRAME_NANOS_120_HZ);
+
+    assertThat(springSystem.lastLoopMillis).isWithin(1e-6).of(FRAME_NANOS_120_HZ / 1e6);
+  }
+
+  private void runFrames(long intervalNanos, int count) {
+    for (int i = 0; i < count; i++) {
+      frameTimeNanos += intervalNanos;
+      looper.doFrame(frameTimeNanos);
+    }
+  }
+
+  private static class RecordingSpringSystem extends BaseSpringSystem {
+
+    private double lastLoopMillis;
+    private double totalLoopMillis;
+
+    private RecordingSpringSystem(ChoreographerSpringLooper looper) {
+      super(looper);
+    }
+
+    @Override
+    public void loop(double ellapsedMillis) {
+      lastLoopMillis = ellapsedMillis;
+      totalLoopMillis += ellapsedMillis;
+      super.loop(ellapsedMillis);
+    }
+  }
+}
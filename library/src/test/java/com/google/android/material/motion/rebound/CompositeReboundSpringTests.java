@@ -0,0 +1,280 @@
+/*
+ * Copyright 2017-present The Material Motion Authors. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.material.motion.rebound;
+
+import com.facebook.rebound.BaseSpringSystem;
+import com.facebook.rebound.Spring;
+import com.facebook.rebound.SpringConfig;
+import com.facebook.rebound.SynchronousLooper;
+import com.google.android.material.motion.rebound.CompositeReboundSpring.CompositeSpringListener;
+import com.google.android.material.motion.rebound.CompositeReboundSpring.SpringTracker;
+import com.google.android.reactive.motion.rebound.BuildConfig;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assume.assumeTrue;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21)
+public class CompositeReboundSpringTests {
+
+  private static final int VECTOR_LENGTH = 4;
+
+  private BaseSpringSystem springSystem;
+  private Spring[] springs;
+  private CompositeReboundSpring compositeSpring;
+  private CountingListener listener;
+
+  @Before
+  public void setUp() {
+    springSystem = new BaseSpringSystem(new SynchronousLooper());
+    springs = new Spring[VECTOR_LENGTH];
+    for (int i = 0; i < VECTOR_LENGTH; i++) {
+      springs[i] = springSystem.createSpring();
+    }
+
+    compositeSpring = new CompositeReboundSpring(springSystem, springs);
+    listener = new CountingListener();
+    compositeSpring.addListener(listener);
+  }
+
+  @Test
+  public void publishesAggregateStateInTheSameLoop() {
+    springs[1].setEndValue(10);
+
+    assertThat(listener.activations).isEqualTo(1);
+    assertThat(listener.updates).isGreaterThan(0);
+    assertThat(listener.rests).isEqualTo(1);
+    assertThat(compositeSpring.isAtRest()).isTrue();
+    assertThat(compositeSpring.getCurrentValues()[0]).isEqualTo(0f);
+    assertThat(compositeSpring.getCurrentValues()[1]).isEqualTo(10f);
+  }
+
+  @Test
+  public void masksUpdatedComponents() {
+    final StringBuilder masks = new StringBuilder();
+    compositeSpring.addListener(new CountingListener() {
+      @Override
+      public void onCompositeSpringUpdate(float[] values, ComponentMask updated) {
+        for (int i = updated.nextSetIndex(0); i != -1; i = updated.nextSetIndex(i + 1)) {
+          masks.append(i);
+        }
+        masks.append(' ');
+      }
+    });
+    SpringTracker tracker = compositeSpring.tracker;
+
+    tracker.listeners[1].onSpringUpdate(springs[1]);
+    tracker.listeners[3].onSpringUpdate(springs[3]);
+    tracker.systemListener.onAfterIntegrate(springSystem);
+    tracker.listeners[2].onSpringUpdate(springs[2]);
+    tracker.systemListener.onAfterIntegrate(springSystem);
+
+    assertThat(masks.toString()).isEqualTo("13 2 ");
+  }
+
+  @Test
+  public void publishesFromSharedFrameCallbacks() {
+    SteppingSpringLooper looper = new SteppingSpringLooper();
+    SharedSpringSystem sharedSpringSystem = looper.createSharedSpringSystem();
+    BaseSpringSystem springSystem = sharedSpringSystem.acquire();
+    Spring[] springs = {sharedSpringSystem.obtainSpring(), sharedSpringSystem.obtainSpring()};
+    CompositeReboundSpring compositeSpring =
+      new CompositeReboundSpring(springSystem, sharedSpringSystem.getFrameCallbacks(), springs);
+    CountingListener listener = new CountingListener();
+    compositeSpring.addListener(listener);
+
+    springs[1].setEndValue(10);
+    looper.step(SteppingSpringLooper.DEFAULT_FRAME_MILLIS);
+
+    assertThat(listener.activations).isEqualTo(1);
+    assertThat(listener.updates).isEqualTo(1);
+    assertThat(compositeSpring.getCurrentValues()[1])
+      .isEqualTo((float) springs[1].getCurrentValue());
+
+    looper.runUntilIdle(SteppingSpringLooper.DEFAULT_FRAME_MILLIS, 1000);
+    assertThat(listener.rests).isEqualTo(1);
+
+    compositeSpring.removeListener(listener);
+    springs[1].setEndValue(0);
+    looper.runUntilIdle(SteppingSpringLooper.DEFAULT_FRAME_MILLIS, 1000);
+    assertThat(listener.activations).isEqualTo(1);
+  }
+
+  @Test
+  public void steadyStateUpdatesDoNotAllocate() {
+    // Per-thread allocation counters are a HotSpot extension.
+    assumeTrue(canMeasureAllocations());
+    SpringTracker tracker = compositeSpring.tracker;
+
+    for (int frame = 0; frame < 10000; frame++) {
+      runFrame(tracker);
+    }
+
+    long before = allocatedBytes();
+    for (int frame = 0; frame < 10000; frame++) {
+      runFrame(tracker);
+    }
+    long allocated = allocatedBytes() - before;
+
+    assertThat(listener.updates).isEqualTo(20000);
+    // Allow for the bookkeeping of the allocation counter itself, but not one object per frame.
+    assertThat(allocated).isLessThan(1024L);
+  }
+
+  @Test
+  public void snapsToRestWithinTolerance() {
+    int framesWithoutTolerance = framesToRest(null);
+    int framesWithTolerance = framesToRest(new float[] {0.5f, 0.5f});
+
+    assertThat(framesWithTolerance).isLessThan(framesWithoutTolerance);
+  }
+
+  @Test
+  public void estimatedTimeToRestIsAnUpperBound() {
+    SteppingSpringLooper looper = new SteppingSpringLooper();
+    BaseSpringSystem springSystem = new BaseSpringSystem(looper);
+    Spring[] springs = createLowFrictionSprings(springSystem);
+    CompositeReboundSpring compositeSpring = new CompositeReboundSpring(springSystem, springs);
+    compositeSpring.addListener(new CountingListener());
+    compositeSpring.setRestTolerances(new float[] {0.5f, 0.5f});
+
+    assertThat(compositeSpring.getEstimatedTimeToRest()).isEqualTo(0.0);
+
+    springs[0].setEndValue(100);
+    springs[1].setEndValue(-40);
+    double estimate = compositeSpring.getEstimatedTimeToRest();
+    looper.runUntilIdle(SteppingSpringLooper.DEFAULT_FRAME_MILLIS, 10000);
+
+    assertThat(compositeSpring.isAtRest()).isTrue();
+    // The composite spring comes to rest in the frame that crosses the estimate.
+    assertThat(estimate * 1000)
+      .isAtLeast(looper.getElapsedMillis() - SteppingSpringLooper.DEFAULT_FRAME_MILLIS);
+    assertThat(compositeSpring.getEstimatedTimeToRest()).isEqualTo(0.0);
+  }
+
+  @Test
+  public void reportsMetrics() {
+    SteppingSpringLooper looper = new SteppingSpringLooper();
+    BaseSpringSystem springSystem = new BaseSpringSystem(looper);
+    Spring[] springs = createLowFrictionSprings(springSystem);
+    SpringMetrics metrics = new SpringMetrics();
+    metrics.attach(springSystem);
+    CompositeReboundSpring compositeSpring = new CompositeReboundSpring(springSystem, springs);
+    CountingListener listener = new CountingListener();
+    compositeSpring.addListener(listener);
+    compositeSpring.setMetrics(metrics);
+
+    springs[0].setEndValue(100);
+    int frames = looper.runUntilIdle(SteppingSpringLooper.DEFAULT_FRAME_MILLIS, 10000);
+
+    assertThat(metrics.getIntegrationNanos().getCount()).isEqualTo((long) frames);
+    assertThat(metrics.getLatencyNanos().getCount()).isEqualTo((long) listener.updates);
+    assertThat(metrics.getDispatchNanos().getCount()).isAtLeast((long) listener.updates);
+    assertThat(metrics.getActiveSprings().getMax()).isEqualTo(1L);
+    assertThat(metrics.getActiveComposites().getMax()).isEqualTo(1L);
+    assertThat(metrics.getSlippedBatchCount()).isEqualTo(0L);
+
+    metrics.reset();
+    assertThat(metrics.getDispatchNanos().getCount()).isEqualTo(0L);
+  }
+
+  private static int framesToRest(float[] tolerances) {
+    SteppingSpringLooper looper = new SteppingSpringLooper();
+    BaseSpringSystem springSystem = new BaseSpringSystem(looper);
+    Spring[] springs = createLowFrictionSprings(springSystem);
+    CompositeReboundSpring compositeSpring = new CompositeReboundSpring(springSystem, springs);
+    CountingListener listener = new CountingListener();
+    compositeSpring.addListener(listener);
+    compositeSpring.setRestTolerances(tolerances);
+
+    springs[0].setEndValue(100);
+    springs[1].setEndValue(-40);
+
+    int frames = 0;
+    do {
+      looper.step(SteppingSpringLooper.DEFAULT_FRAME_MILLIS);
+      frames++;
+    } while (!compositeSpring.isAtRest() && frames < 10000);
+
+    assertThat(listener.rests).isEqualTo(1);
+    assertThat(compositeSpring.getCurrentValues()).isEqualTo(new float[] {100f, -40f}, 0f);
+    return frames;
+  }
+
+  private static Spring[] createLowFrictionSprings(BaseSpringSystem springSystem) {
+    Spring[] springs = {springSystem.createSpring(), springSystem.createSpring()};
+    for (Spring spring : springs) {
+      spring.setSpringConfig(new SpringConfig(200, 2));
+    }
+    return springs;
+  }
+
+  private void runFrame(SpringTracker tracker) {
+    for (int i = 0; i < VECTOR_LENGTH; i++) {
+      tracker.listeners[i].onSpringUpdate(springs[i]);
+    }
+    tracker.systemListener.onAfterIntegrate(springSystem);
+  }
+
+  private static boolean canMeasureAllocations() {
+    try {
+      Class<?> hotSpotBean = Class.forName("com.sun.management.ThreadMXBean");
+      ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+      return hotSpotBean.isInstance(threadMXBean)
+        && ((com.sun.management.ThreadMXBean) threadMXBean).isThreadAllocatedMemorySupported()
+        && ((com.sun.management.ThreadMXBean) threadMXBean).isThreadAllocatedMemoryEnabled();
+    } catch (ClassNotFoundException e) {
+      return false;
+    }
+  }
+
+  private static long allocatedBytes() {
+    com.sun.management.ThreadMXBean threadMXBean =
+      (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    return threadMXBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+  }
+
+  private static class CountingListener implements CompositeSpringListener {
+
+    private int activations;
+    private int updates;
+    private int rests;
+
+    @Override
+    public void onCompositeSpringActivate() {
+      activations++;
+    }
+
+    @Override
+    public void onCompositeSpringUpdate(float[] values, ComponentMask updated) {
+      updates++;
+    }
+
+    @Override
+    public void onCompositeSpringAtRest() {
+      rests++;
+    }
+  }
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright 2017-present The Material Motion Authors. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.material.motion.rebound;
+
+import com.google.android.reactive.motion.rebound.BuildConfig;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import static com.google.common.truth.Truth.assertThat;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21)
+public class CopyOnWriteArraysTests {
+
+  @Test
+  public void appendsToACopy() {
+    String[] array = {"a"};
+    String[] appended = CopyOnWriteArrays.append(array, "b");
+
+    assertThat(appended).asList().containsExactly("a", "b").inOrder();
+    assertThat(array).asList().containsExactly("a");
+  }
+
+  @Test
+  public void removesFromACopy() {
+    String[] array = {"a", "b", "c"};
+    String[] removed = CopyOnWriteArrays.remove(array, "b");
+
+    assertThat(removed).asList().containsExactly("a", "c").inOrder();
+    assertThat(array).asList().containsExactly("a", "b", "c").inOrder();
+  }
+
+  @Test
+  public void comparesByIdentity() {
+    String element = "a";
+    String equalElement = new String(element);
+    String[] array = {element};
+
+    assertThat(CopyOnWriteArrays.indexOf(array, equalElement)).isEqualTo(-1);
+    assertThat(CopyOnWriteArrays.remove(array, equalElement)).isSameAs(array);
+    assertThat(CopyOnWriteArrays.remove(array, element)).isEmpty();
+  }
+}
@@ -0,0 +1,451 @@
+/*
+ * Copyright 2017-present The Material Motion Authors. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.material.motion.rebound;
+
+import android.graphics.PointF;
+
+import com.facebook.rebound.BaseSpringSystem;
+import com.facebook.rebound.SimpleSpringListener;
+import com.facebook.rebound.Spring;
+import com.google.android.material.motion.MotionObserver.SimpleMotionObserver;
+import com.google.android.material.motion.MotionState;
+import com.google.android.material.motion.interactions.MaterialSpring;
+import com.google.android.material.motion.properties.ViewProperties;
+import com.google.android.material.motion.sources.SpringSource;
+import com.google.android.material.motion.springs.PointFTypeVectorizer;
+import com.google.android.material.motion.springs.TypeVectorizer;
+import com.google.android.reactive.motion.rebound.BuildConfig;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.fail;
+
+/**
+ * Drives {@link ReboundSpringSource} directly through its lifecycle callbacks, on a manually
+ * stepped spring system.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21)
+public class ReboundSpringSourceTests {
+
+  private static final double FRAME_MILLIS = SteppingSpringLooper.DEFAULT_FRAME_MILLIS;
+  private static final int MAX_FRAMES = 1000;
+
+  private SteppingSpringLooper looper;
+  private SharedSpringSystem sharedSpringSystem;
+  private MaterialSpring<?, PointF> interaction;
+  private ReboundSpringSource<PointF> source;
+  private RecordingObserver observer;
+  private StringBuilder states;
+
+  @Before
+  public void setUp() {
+    looper = new SteppingSpringLooper();
+    sharedSpringSystem = looper.createSharedSpringSystem();
+    interaction = createInteraction(new XTypeVectorizer());
+    source = new ReboundSpringSource<>(interaction, sharedSpringSystem);
+    observer = new RecordingObserver();
+
+    states = new StringBuilder();
+    interaction.state.subscribe(new SimpleMotionObserver<Integer>() {
+      @Override
+      public void next(Integer value) {
+        states.append(value == MotionState.ACTIVE ? 'A' : 'R');
+      }
+    });
+    states.setLength(0);
+
+    source.onConnect(observer);
+  }
+
+  @Test
+  public void writesActiveWhenReenabledWhileMoving() {
+    // A single component source relies on rebound's activation callback rather than rescanning the
+    // springs, so it only reports ACTIVE for springs that rebound knows were at rest.
+    // Another source keeps the spring system, and its pool, alive.
+    sharedSpringSystem.acquire();
+    source.onEnable(observer);
+    interaction.destination.write(new PointF(100f, 0f));
+    for (int frame = 0; frame < 5; frame++) {
+      looper.step(FRAME_MILLIS);
+    }
+    assertThat(states.toString()).isEqualTo("A");
+
+    // The springs are recycled while moving, and obtained again before the next loop.
+    source.onDisable(observer);
+    source.onEnable(observer);
+    looper.runUntilIdle(FRAME_MILLIS, MAX_FRAMES);
+
+    assertThat(states.toString()).isEqualTo("ARAR");
+    assertThat(observer.last.x).isEqualTo(100f);
+  }
+
+  @Test
+  public void retargetsWithoutWritingTheDestination() {
+    source.onEnable(observer);
+    source.retarget(new float[] {50f}, null);
+    looper.runUntilIdle(FRAME_MILLIS, MAX_FRAMES);
+
+    assertThat(states.toString()).isEqualTo("AR");
+    assertThat(observer.last.x).isWithin(0.01f).of(50f);
+    assertThat(interaction.destination.read().x).isEqualTo(0f);
+
+    // Writing the destination retargets the springs to it again.
+    interaction.destination.write(new PointF(0f, 0f));
+    looper.runUntilIdle(FRAME_MILLIS, MAX_FRAMES);
+
+    assertThat(observer.last.x).isWithin(0.01f).of(0f);
+  }
+
+  @Test
+  public void handsOffVelocityToTheSprings() {
+    source.onEnable(observer);
+
+    // The springs are at rest at their destination, so only the velocity moves them.
+    source.retarget(new float[] {0f}, new float[] {1000f});
+    looper.runUntilIdle(FRAME_MILLIS, MAX_FRAMES);
+
+    assertThat(states.toString()).isEqualTo("AR");
+    assertThat(observer.maxX).isGreaterThan(10f);
+    assertThat(observer.last.x).isWithin(0.01f).of(0f);
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void retargetingADisabledSourceThrows() {
+    source.retarget(new float[] {50f}, null);
+  }
+
+  @Test
+  public void rejectsRetargetsOfTheWrongLengthWithoutChangingTheSprings() {
+    source.onEnable(observer);
+
+    try {
+      source.retarget(new float[] {50f}, new float[0]);
+      fail();
+    } catch (IllegalArgumentException expected) {
+    }
+    try {
+      source.retarget(new float[] {50f, 60f}, new float[] {1000f});
+      fail();
+    } catch (IllegalArgumentException expected) {
+    }
+    looper.runUntilIdle(FRAME_MILLIS, MAX_FRAMES);
+
+    assertThat(states.toString()).isEmpty();
+    assertThat(observer.maxX).isEqualTo(0f);
+  }
+
+  @Test
+  public void coalescesDestinationWritesWhileTheSystemIsRunning() {
+    BaseSpringSystem springSystem = sharedSpringSystem.acquire();
+    source.onEnable(observer);
+    Spring spring = springSystem.getAllSprings().get(0);
+    looper.runUntilIdle(FRAME_MILLIS, MAX_FRAMES);
+
+    // The spring system is idle, so the first write is applied immediately.
+    interaction.destination.write(new PointF(10f, 0f));
+    assertThat(spring.getEndValue()).isEqualTo(10.0);
+    looper.step(FRAME_MILLIS);
+
+    // Only the first write in a running frame is applied immediately, and only the last of the
+    // others before the next integration.
+    interaction.destination.write(new PointF(20f, 0f));
+    interaction.destination.write(new PointF(30f, 0f));
+    interaction.destination.write(new PointF(40f, 0f));
+    assertThat(spring.getEndValue()).isEqualTo(20.0);
+
+    final List<Double> integratedEndValues = new ArrayList<>();
+    spring.addListener(new SimpleSpringListener() {
+      @Override
+      public void onSpringUpdate(Spring spring) {
+        integratedEndValues.add(spring.getEndValue());
+      }
+    });
+    looper.step(FRAME_MILLIS);
+
+    assertThat(integratedEndValues).containsExactly(40.0);
+
+    looper.runUntilIdle(FRAME_MILLIS, MAX_FRAMES);
+    assertThat(observer.last.x).isWithin(0.01f).of(40f);
+    sharedSpringSystem.release(springSystem);
+  }
+
+  @Test
+  public void retargetsImmediatelyAndDropsADeferredDestination() {
+    source.onEnable(observer);
+    looper.step(FRAME_MILLIS);
+
+    // The first write is applied immediately, and the second deferred to the next frame.
+    interaction.destination.write(new PointF(10f, 0f));
+    interaction.destination.write(new PointF(20f, 0f));
+    source.retarget(new float[] {50f}, null);
+    looper.runUntilIdle(FRAME_MILLIS, MAX_FRAMES);
+
+    assertThat(observer.last.x).isWithin(0.01f).of(50f);
+  }
+
+  @Test
+  public void reportsCreatedSourcesToTheSourceListener() {
+    final List<ReboundSpringSource<?>> created = new ArrayList<>();
+    SpringSource.System system = new ReboundSpringSource.SystemBuilder()
+      .setSharedSpringSystem(sharedSpringSystem)
+      .setSourceListener(new ReboundSpringSource.SourceListener() {
+        @Override
+        public <T> void onSourceCreated(
+          MaterialSpring<?, T> interaction, ReboundSpringSource<T> source) {
+          created.add(source);
+        }
+      })
+      .build();
+
+    SpringSource<PointF> source = system.create(interaction);
+
+    assertThat(created).containsExactly(source);
+  }
+
+  @Test
+  public void deliversTheInitialValueAtTheEndOfTheNextLoopLikeACompositeSpring() {
+    MaterialSpring<?, PointF> vectorInteraction = createInteraction(new PointFTypeVectorizer());
+    ReboundSpringSource<PointF> vectorSource =
+      new ReboundSpringSource<>(vectorInteraction, sharedSpringSystem);
+    RecordingObserver vectorObserver = new RecordingObserver();
+    vectorSource.onConnect(vectorObserver);
+
+    // The springs start at their destination, so only the initial value is delivered.
+    interaction.initialValue.write(new PointF(5f, 0f));
+    interaction.destination.write(new PointF(5f, 0f));
+    vectorInteraction.initialValue.write(new PointF(5f, 7f));
+    vectorInteraction.destination.write(new PointF(5f, 7f));
+    source.onEnable(observer);
+    vectorSource.onEnable(vectorObserver);
+
+    assertThat(observer.count).isEqualTo(0);
+    assertThat(vectorObserver.count).isEqualTo(0);
+
+    looper.step(FRAME_MILLIS);
+
+    assertThat(observer.count).isEqualTo(1);
+    assertThat(observer.last.x).isEqualTo(5f);
+    assertThat(vectorObserver.count).isEqualTo(1);
+    assertThat(vectorObserver.last.x).isEqualTo(5f);
+    assertThat(vectorObserver.last.y).isEqualTo(7f);
+    assertThat(states.toString()).isEmpty();
+  }
+
+  @Test
+  public void deliversTheInitialValueOnceWhenTheSpringMovesInTheNextLoop() {
+    interaction.initialValue.write(new PointF(5f, 0f));
+    source.onEnable(observer);
+    interaction.destination.write(new PointF(100f, 0f));
+
+    looper.step(FRAME_MILLIS);
+
+    assertThat(observer.count).isEqualTo(1);
+    assertThat(observer.last.x).isGreaterThan(5f);
+  }
+
+  @Test
+  public void writesActiveThenAtRestForASingleComponent() {
+    source.onEnable(observer);
+    interaction.destination.write(new PointF(100f, 0f));
+    looper.step(FRAME_MILLIS);
+
+    assertThat(states.toString()).isEqualTo("A");
+
+    looper.runUntilIdle(FRAME_MILLIS, MAX_FRAMES);
+
+    assertThat(states.toString()).isEqualTo("AR");
+    assertThat(observer.last.x).isWithin(0.01f).of(100f);
+  }
+
+  @Test
+  public void notifiesValueListenersOfTheSingleComponent() {
+    final float[] last = new float[1];
+    final int[] count = new int[1];
+    source.addValueListener(new SpringValueListener() {
+      @Override
+      public void onSpringValuesUpdate(float[] values, ComponentMask updated) {
+        assertThat(updated.isSet(0)).isTrue();
+        last[0] = values[0];
+        count[0]++;
+      }
+    });
+
+    source.onEnable(observer);
+    interaction.destination.write(new PointF(100f, 0f));
+    looper.runUntilIdle(FRAME_MILLIS, MAX_FRAMES);
+
+    assertThat(count[0]).isEqualTo(observer.count);
+    assertThat(last[0]).isEqualTo(observer.last.x);
+  }
+
+  @Test
+  public void reportsSingleComponentUpdatesToMetricsWithoutBatches() {
+    SpringMetrics metrics = new SpringMetrics();
+    ReboundSpringSource<PointF> source = createSource(new ReboundSpringSource.SystemBuilder()
+      .setSharedSpringSystem(sharedSpringSystem)
+      .setMetrics(metrics));
+
+    source.onEnable(observer);
+    interaction.destination.write(new PointF(100f, 0f));
+    looper.runUntilIdle(FRAME_MILLIS, MAX_FRAMES);
+
+    assertThat(metrics.getDispatchNanos().getCount()).isEqualTo((long) observer.count);
+    assertThat(metrics.getAggregationNanos().getCount()).isEqualTo(0L);
+  }
+
+  @Test
+  public void stopsMeasuringTheSpringSystemOnceEverySourceSharingTheMetricsIsDisabled() {
+    // Keep the spring system alive between the sources being disabled.
+    BaseSpringSystem springSystem = sharedSpringSystem.acquire();
+    SpringMetrics metrics = new SpringMetrics();
+    SpringSource.System system = new ReboundSpringSource.SystemBuilder()
+      .setSharedSpringSystem(sharedSpringSystem)
+      .setMetrics(metrics)
+      .build();
+    MaterialSpring<?, PointF> otherInteraction = createInteraction(new XTypeVectorizer());
+    ReboundSpringSource<PointF> source = (ReboundSpringSource<PointF>) system.create(interaction);
+    ReboundSpringSource<PointF> otherSource =
+      (ReboundSpringSource<PointF>) system.create(otherInteraction);
+    RecordingObserver otherObserver = new RecordingObserver();
+    source.onConnect(observer);
+    otherSource.onConnect(otherObserver);
+
+    source.onEnable(observer);
+    otherSource.onEnable(otherObserver);
+    source.onDisable(observer);
+    otherInteraction.destination.write(new PointF(100f, 0f));
+    looper.runUntilIdle(FRAME_MILLIS, MAX_FRAMES);
+
+    assertThat(metrics.getIntegrationNanos().getCount()).isGreaterThan(0L);
+
+    otherSource.onDisable(otherObserver);
+    metrics.reset();
+    springSystem.createSpring().setEndValue(100);
+    looper.runUntilIdle(FRAME_MILLIS, MAX_FRAMES);
+
+    assertThat(metrics.getIntegrationNanos().getCount()).isEqualTo(0L);
+    sharedSpringSystem.release(springSystem);
+  }
+
+  @Test
+  public void deferredDispatchAggregatesASingleComponentInACompositeSpring() {
+    SpringMetrics metrics = new SpringMetrics();
+    ReboundSpringSource<PointF> source = createSource(new ReboundSpringSource.SystemBuilder()
+      .setSharedSpringSystem(sharedSpringSystem)
+      .setMetrics(metrics)
+      .setDeferredDispatch(true));
+
+    source.onEnable(observer);
+    interaction.destination.write(new PointF(100f, 0f));
+    looper.runUntilIdle(FRAME_MILLIS, MAX_FRAMES);
+
+    assertThat(metrics.getAggregationNanos().getCount()).isGreaterThan(0L);
+    assertThat(states.toString()).isEqualTo("AR");
+  }
+
+  @Test
+  public void composesIntoOneReusedInstanceOncePerFrameForAllObservers() {
+    ReusablePointFTypeVectorizer vectorizer = new ReusablePointFTypeVectorizer();
+    MaterialSpring<?, PointF> interaction = createInteraction(vectorizer);
+    ReboundSpringSource<PointF> source = new ReboundSpringSource<>(interaction, sharedSpringSystem);
+    InstanceObserver first = new InstanceObserver();
+    InstanceObserver second = new InstanceObserver();
+    source.onConnect(first);
+    source.onConnect(second);
+
+    source.onEnable(first);
+    interaction.destination.write(new PointF(100f, 50f));
+    looper.runUntilIdle(FRAME_MILLIS, MAX_FRAMES);
+
+    assertThat(first.count).isGreaterThan(1);
+    assertThat(second.count).isEqualTo(first.count);
+    assertThat(first.sameInstance).isTrue();
+    assertThat(second.sameInstance).isTrue();
+    assertThat(second.instance).isSameAs(first.instance);
+    assertThat(first.instance.x).isWithin(0.01f).of(100f);
+    assertThat(first.instance.y).isWithin(0.01f).of(50f);
+
+    assertThat(vectorizer.newInstanceCount).isEqualTo(1);
+    assertThat(vectorizer.composeIntoCount).isEqualTo(first.count);
+    assertThat(vectorizer.composeCount).isEqualTo(0);
+  }
+
+  private MaterialSpring<?, PointF> createInteraction(TypeVectorizer<PointF> vectorizer) {
+    return new MaterialSpring<>(
+      ViewProperties.TRANSLATION,
+      vectorizer,
+      new PointF(),
+      new PointF(),
+      new PointF(),
+      0.01f,
+      1f,
+      4f,
+      ReboundSpringSource.SYSTEM);
+  }
+
+  /**
+   * Creates a source for the interaction from a system built by the builder, and connects the
+   * observer to it.
+   */
+  private ReboundSpringSource<PointF> createSource(ReboundSpringSource.SystemBuilder builder) {
+    ReboundSpringSource<PointF> source =
+      (ReboundSpringSource<PointF>) builder.build().create(interaction);
+    source.onConnect(observer);
+    return source;
+  }
+
+  /**
+   * Records whether every value delivered to it is the same instance.
+   */
+  private static class InstanceObserver extends SimpleMotionObserver<PointF> {
+
+    private int count;
+    private PointF instance;
+    private boolean sameInstance = true;
+
+    @Override
+    public void next(PointF value) {
+      if (instance != null && value != instance) {
+        sameInstance = false;
+      }
+      instance = value;
+      count++;
+    }
+  }
+
+  private static class RecordingObserver extends SimpleMotionObserver<PointF> {
+
+    private int count;
+    private PointF last;
+    private float maxX;
+
+    @Override
+    public void next(PointF value) {
+      count++;
+      last = new PointF(value.x, value.y);
+      maxX = Math.max(maxX, value.x);
+    }
+  }
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright 2017-present The Material Motion Authors. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.material.motion.rebound;
+
+import android.graphics.PointF;
+
+import com.google.android.material.motion.springs.TypeVectorizer;
+
+/**
+ * Composes points into a reused instance, and counts how often it composes.
+ */
+class ReusablePointFTypeVectorizer extends TypeVectorizer<PointF>
+  implements ReusableTypeVectorizer<PointF> {
+
+  int newInstanceCount;
+  int composeIntoCount;
+  int composeCount;
+
+  ReusablePointFTypeVectorizer() {
+    super(2);
+  }
+
+  @Override
+  public void vectorize(PointF value, float[] vector) {
+    vector[0] = value.x;
+    vector[1] = value.y;
+  }
+
+  @Override
+  public PointF newInstance() {
+    newInstanceCount++;
+    return new PointF();
+  }
+
+  @Override
+  public void composeInto(float[] vector, PointF value) {
+    composeIntoCount++;
+    value.set(vector[0], vector[1]);
+  }
+
+  @Override
+  public PointF compose(float[] vector) {
+    composeCount++;
+    return new PointF(vector[0], vector[1]);
+  }
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright 2017-present The Material Motion Authors. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.material.motion.rebound;
+
+import com.facebook.rebound.BaseSpringSystem;
+import com.facebook.rebound.SimpleSpringListener;
+import com.facebook.rebound.Spring;
+import com.google.android.reactive.motion.rebound.BuildConfig;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import static com.google.common.truth.Truth.assertThat;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21)
+public class SharedSpringSystemTests {
+
+  private SharedSpringSystem sharedSpringSystem;
+
+  @Before
+  public void setUp() {
+    sharedSpringSystem = new SteppingSpringLooper().createSharedSpringSystem();
+  }
+
+  @Test
+  public void createsOneSpringSystemPerReferencedPeriod() {
+    BaseSpringSystem first = sharedSpringSystem.acquire();
+    assertThat(sharedSpringSystem.acquire()).isSameAs(first);
+    assertThat(sharedSpringSystem.getReferenceCount()).isEqualTo(2);
+
+    sharedSpringSystem.release(first);
+    sharedSpringSystem.release(first);
+    assertThat(sharedSpringSystem.getReferenceCount()).isEqualTo(0);
+
+    BaseSpringSystem second = sharedSpringSystem.acquire();
+    assertThat(second).isNotSameAs(first);
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void rejectsUnbalancedRelease() {
+    BaseSpringSystem springSystem = sharedSpringSystem.acquire();
+    sharedSpringSystem.release(springSystem);
+    sharedSpringSystem.release(springSystem);
+  }
+
+  @Test
+  public void reusesRecycledSprings() {
+    BaseSpringSystem springSystem = sharedSpringSystem.acquire();
+    Spring spring = sharedSpringSystem.obtainSpring();
+    final int[] updates = new int[1];
+    spring.addListener(new SimpleSpringListener() {
+      @Override
+      public void onSpringUpdate(Spring spring) {
+        updates[0]++;
+      }
+    });
+    spring.setEndValue(10);
+
+    sharedSpringSystem.recycleSpring(spring);
+    assertThat(sharedSpringSystem.getPooledSpringCount()).isEqualTo(1);
+
+    Spring reused = sharedSpringSystem.obtainSpring();
+    assertThat(reused).isSameAs(spring);
+    assertThat(reused.isAtRest()).isTrue();
+    assertThat(springSystem.getAllSprings()).hasSize(1);
+
+    reused.setCurrentValue(5);
+    assertThat(updates[0]).isEqualTo(0);
+  }
+
+  @Test
+  public void poolsMovingSpringsOnceSettledSoTheyActivateAgain() {
+    SteppingSpringLooper looper = new SteppingSpringLooper();
+    SharedSpringSystem sharedSpringSystem = looper.createSharedSpringSystem();
+    sharedSpringSystem.acquire();
+    Spring spring = sharedSpringSystem.obtainSpring();
+    spring.setEndValue(100);
+    looper.step(SteppingSpringLooper.DEFAULT_FRAME_MILLIS);
+
+    sharedSpringSystem.recycleSpring(spring);
+    assertThat(sharedSpringSystem.getPooledSpringCount()).isEqualTo(0);
+    looper.step(SteppingSpringLooper.DEFAULT_FRAME_MILLIS);
+    assertThat(sharedSpringSystem.getPooledSpringCount()).isEqualTo(1);
+
+    Spring reused = sharedSpringSystem.obtainSpring();
+    assertThat(reused).isSameAs(spring);
+    final int[] activations = new int[1];
+    reused.addListener(new SimpleSpringListener() {
+      @Override
+      public void onSpringActivate(Spring spring) {
+        activations[0]++;
+      }
+    });
+    reused.setCurrentValue(0);
+    reused.setEndValue(50);
+    looper.runUntilIdle(SteppingSpringLooper.DEFAULT_FRAME_MILLIS, 1000);
+
+    assertThat(activations[0]).isEqualTo(1);
+  }
+
+  @Test
+  public void destroysPooledSpringsWithTheSpringSystem() {
+    BaseSpringSystem springSystem = sharedSpringSystem.acquire();
+    sharedSpringSystem.recycleSpring(sharedSpringSystem.obtainSpring());
+
+    sharedSpringSystem.release(springSystem);
+
+    assertThat(sharedSpringSystem.getPooledSpringCount()).isEqualTo(0);
+    assertThat(springSystem.getAllSprings()).isEmpty();
+  }
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright 2017-present The Material Motion Authors. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.material.motion.rebound;
+
+import com.facebook.rebound.OrigamiValueConverter;
+import com.facebook.rebound.SpringConfig;
+import com.google.android.reactive.motion.rebound.BuildConfig;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import static com.google.common.truth.Truth.assertThat;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21)
+public class SpringConfigCacheTests {
+
+  @Test
+  public void sharesConfigsWithTheSameOrigamiValues() {
+    SpringConfig config = SpringConfigCache.get(342f, 30f);
+
+    assertThat(SpringConfigCache.get(342f, 30f)).isSameAs(config);
+    assertThat(config.tension).isEqualTo(OrigamiValueConverter.tensionFromOrigamiValue(342f));
+    assertThat(config.friction).isEqualTo(OrigamiValueConverter.frictionFromOrigamiValue(30f));
+  }
+
+  @Test
+  public void distinguishesOrigamiValues() {
+    SpringConfig config = SpringConfigCache.get(342f, 30f);
+
+    assertThat(SpringConfigCache.get(30f, 342f)).isNotSameAs(config);
+    assertThat(SpringConfigCache.get(342f, 31f).friction)
+      .isEqualTo(OrigamiValueConverter.frictionFromOrigamiValue(31f));
+  }
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright 2017-present The Material Motion Authors. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.material.motion.rebound;
+
+import com.google.android.material.motion.rebound.SpringFrameBuffer.Frame;
+import com.google.android.reactive.motion.rebound.BuildConfig;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import static com.google.common.truth.Truth.assertThat;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21)
+public class SpringFrameBufferTests {
+
+  @Test
+  public void readsOnlyTheLatestUnreadFrame() {
+    SpringFrameBuffer buffer = new SpringFrameBuffer(1);
+    assertThat(buffer.read()).isNull();
+
+    publish(buffer, 1);
+    publish(buffer, 2);
+
+    assertThat(buffer.read().sequence).isEqualTo(2L);
+    assertThat(buffer.read()).isNull();
+
+    publish(buffer, 3);
+    Frame frame = buffer.read();
+    assertThat(frame.sequence).isEqualTo(3L);
+    assertThat(frame.values[0]).isEqualTo(3f);
+  }
+
+  @Test
+  public void neverReadsAFrameThatIsBeingWritten() throws InterruptedException {
+    final int length = 16;
+    final int frames = 200000;
+    final SpringFrameBuffer buffer = new SpringFrameBuffer(length);
+
+    Thread producer = new Thread() {
+      @Override
+      public void run() {
+        for (int n = 1; n <= frames; n++) {
+          publish(buffer, n);
+        }
+      }
+    };
+    producer.start();
+
+    long lastSequence = -1;
+    while (lastSequence < frames) {
+      Frame frame = buffer.read();
+      if (frame == null) {
+        continue;
+      }
+      assertThat(frame.sequence).isGreaterThan(lastSequence);
+      for (int i = 0; i < length; i++) {
+        assertThat(frame.values[i]).isEqualTo((float) frame.sequence);
+      }
+      lastSequence = frame.sequence;
+    }
+    producer.join();
+  }
+
+  private static void publish(SpringFrameBuffer buffer, int sequence) {
+    Frame frame = buffer.getBackFrame();
+    for (int i = 0; i < frame.values.length; i++) {
+      frame.values[i] = sequence;
+    }
+    frame.sequence = sequence;
+    buffer.publish();
+  }
+}
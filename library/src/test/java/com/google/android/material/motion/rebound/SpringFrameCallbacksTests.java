@@ -0,0 +1,112 @@
+/*
+ * Copyright 2017-present The Material Motion Authors. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.material.motion.rebound;
+
+import com.facebook.rebound.BaseSpringSystem;
+import com.google.android.reactive.motion.rebound.BuildConfig;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import static com.google.common.truth.Truth.assertThat;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21)
+public class SpringFrameCallbacksTests {
+
+  private BaseSpringSystem springSystem;
+  private SpringFrameCallbacks frameCallbacks;
+  private StringBuilder log;
+
+  @Before
+  public void setUp() {
+    springSystem = new BaseSpringSystem(new SteppingSpringLooper());
+    frameCallbacks = new SpringFrameCallbacks();
+    log = new StringBuilder();
+  }
+
+  @Test
+  public void runsPostedCallbacksOnceInOrder() {
+    frameCallbacks.postBeforeIntegrate(new LoggingCallback("a"));
+    frameCallbacks.postBeforeIntegrate(new LoggingCallback("b"));
+    frameCallbacks.postAfterIntegrate(new LoggingCallback("c"));
+
+    runLoop();
+    runLoop();
+
+    assertThat(log.toString()).isEqualTo("abc||");
+  }
+
+  @Test
+  public void runsCallbacksPostedWhileRunningInTheNextLoop() {
+    final SpringFrameCallbacks.Callback next = new LoggingCallback("b");
+    frameCallbacks.postBeforeIntegrate(new LoggingCallback("a") {
+      @Override
+      public void onFrame(BaseSpringSystem springSystem) {
+        super.onFrame(springSystem);
+        frameCallbacks.postBeforeIntegrate(next);
+      }
+    });
+
+    runLoop();
+    runLoop();
+
+    assertThat(log.toString()).isEqualTo("a|b|");
+  }
+
+  @Test
+  public void doesNotRunRemovedCallbacks() {
+    final SpringFrameCallbacks.Callback removed = new LoggingCallback("b");
+    frameCallbacks.postAfterIntegrate(new LoggingCallback("a") {
+      @Override
+      public void onFrame(BaseSpringSystem springSystem) {
+        super.onFrame(springSystem);
+        frameCallbacks.remove(removed);
+      }
+    });
+    frameCallbacks.postAfterIntegrate(removed);
+    SpringFrameCallbacks.Callback removedBeforeLoop = new LoggingCallback("c");
+    frameCallbacks.postBeforeIntegrate(removedBeforeLoop);
+    frameCallbacks.remove(removedBeforeLoop);
+
+    runLoop();
+
+    assertThat(log.toString()).isEqualTo("a|");
+  }
+
+  private void runLoop() {
+    frameCallbacks.onBeforeIntegrate(springSystem);
+    frameCallbacks.onAfterIntegrate(springSystem);
+    log.append('|');
+  }
+
+  private class LoggingCallback implements SpringFrameCallbacks.Callback {
+
+    private final String name;
+
+    private LoggingCallback(String name) {
+      this.name = name;
+    }
+
+    @Override
+    public void onFrame(BaseSpringSystem springSystem) {
+      log.append(name);
+    }
+  }
+}
@@ -0,0 +1,186 @@
+/*
+ * Copyright 2017-present The Material Motion Authors. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.material.motion.rebound;
+
+import android.graphics.PointF;
+
+import com.google.android.material.motion.MotionObserver.SimpleMotionObserver;
+import com.google.android.material.motion.interactions.MaterialSpring;
+import com.google.android.material.motion.properties.ViewProperties;
+import com.google.android.material.motion.springs.PointFTypeVectorizer;
+import com.google.android.material.motion.springs.TypeVectorizer;
+import com.google.android.reactive.motion.rebound.BuildConfig;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import static com.google.common.truth.Truth.assertThat;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21)
+public class SpringGroupTests {
+
+  private static final double FRAME_MILLIS = SteppingSpringLooper.DEFAULT_FRAME_MILLIS;
+  private static final int MAX_FRAMES = 1000;
+
+  private SteppingSpringLooper looper;
+  private SharedSpringSystem sharedSpringSystem;
+  private SpringGroup group;
+  private StringBuilder events;
+
+  @Before
+  public void setUp() {
+    looper = new SteppingSpringLooper();
+    sharedSpringSystem = looper.createSharedSpringSystem();
+    group = new SpringGroup(sharedSpringSystem);
+    events = new StringBuilder();
+    group.addListener(new SpringGroup.GroupListener() {
+      @Override
+      public void onGroupActivate() {
+        events.append('A');
+      }
+
+      @Override
+      public void onGroupAtRest() {
+        events.append('R');
+      }
+    });
+  }
+
+  @Test
+  public void publishesOnceForStaggeredMembers() {
+    Member fast = new Member(20f);
+    Member slow = new Member(4f);
+    group.add(fast.source);
+    group.add(slow.source);
+    fast.enable();
+    slow.enable();
+
+    fast.interaction.destination.write(new PointF(100f, 0f));
+    looper.step(FRAME_MILLIS);
+    assertThat(events.toString()).isEqualTo("A");
+    assertThat(group.isAtRest()).isFalse();
+
+    // The slow member starts moving while the fast one is still active, and rests after it.
+    for (int frame = 0; frame < 5; frame++) {
+      looper.step(FRAME_MILLIS);
+    }
+    slow.interaction.destination.write(new PointF(0f, 100f));
+    looper.runUntilIdle(FRAME_MILLIS, MAX_FRAMES);
+
+    assertThat(events.toString()).isEqualTo("AR");
+    assertThat(group.isAtRest()).isTrue();
+  }
+
+  @Test
+  public void publishesRestWhenTheLastActiveMemberIsDisabled() {
+    Member member = new Member(4f);
+    group.add(member.source);
+    member.enable();
+
+    member.interaction.destination.write(new PointF(100f, 100f));
+    looper.step(FRAME_MILLIS);
+    member.disable();
+
+    assertThat(events.toString()).isEqualTo("AR");
+    assertThat(group.isAtRest()).isTrue();
+  }
+
+  @Test
+  public void followsMembersAddedAndRemovedWhileMoving() {
+    Member member = new Member(4f);
+    member.enable();
+    member.interaction.destination.write(new PointF(100f, 0f));
+    looper.step(FRAME_MILLIS);
+
+    group.add(member.source);
+    assertThat(events.toString()).isEqualTo("A");
+
+    group.remove(member.source);
+    assertThat(events.toString()).isEqualTo("AR");
+
+    // The removed member no longer reports to the group.
+    looper.runUntilIdle(FRAME_MILLIS, MAX_FRAMES);
+    assertThat(events.toString()).isEqualTo("AR");
+  }
+
+  @Test
+  public void followsSingleComponentMembers() {
+    Member scalar = new Member(20f, new XTypeVectorizer());
+    Member vector = new Member(4f);
+    group.add(scalar.source);
+    group.add(vector.source);
+    scalar.enable();
+    vector.enable();
+
+    scalar.interaction.destination.write(new PointF(100f, 0f));
+    looper.step(FRAME_MILLIS);
+    vector.interaction.destination.write(new PointF(0f, 100f));
+    looper.runUntilIdle(FRAME_MILLIS, MAX_FRAMES);
+
+    assertThat(events.toString()).isEqualTo("AR");
+
+    // Only the single component member moves.
+    scalar.interaction.destination.write(new PointF(0f, 0f));
+    looper.runUntilIdle(FRAME_MILLIS, MAX_FRAMES);
+
+    assertThat(events.toString()).isEqualTo("ARAR");
+  }
+
+  /**
+   * A source that is driven directly through its lifecycle callbacks.
+   */
+  private class Member {
+
+    private final MaterialSpring<?, PointF> interaction;
+    private final ReboundSpringSource<PointF> source;
+    private final SimpleMotionObserver<PointF> observer = new SimpleMotionObserver<PointF>() {
+      @Override
+      public void next(PointF value) {
+      }
+    };
+
+    private Member(float tension) {
+      this(tension, new PointFTypeVectorizer());
+    }
+
+    private Member(float tension, TypeVectorizer<PointF> vectorizer) {
+      interaction = new MaterialSpring<>(
+        ViewProperties.TRANSLATION,
+        vectorizer,
+        new PointF(),
+        new PointF(),
+        new PointF(),
+        0.01f,
+        1f,
+        tension,
+        ReboundSpringSource.SYSTEM);
+      source = new ReboundSpringSource<>(interaction, sharedSpringSystem);
+      source.onConnect(observer);
+    }
+
+    private void enable() {
+      source.onEnable(observer);
+    }
+
+    private void disable() {
+      source.onDisable(observer);
+    }
+  }
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright 2017-present The Material Motion Authors. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.material.motion.rebound;
+
+import com.facebook.rebound.BaseSpringSystem;
+import com.facebook.rebound.Spring;
+import com.facebook.rebound.SpringConfig;
+import com.google.android.material.motion.rebound.CompositeReboundSpring.CompositeSpringListener;
+import com.google.android.reactive.motion.rebound.BuildConfig;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import static com.google.common.truth.Truth.assertThat;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21)
+public class SpringRecorderTests {
+
+  private SteppingSpringLooper looper;
+  private Spring[] springs;
+  private CompositeReboundSpring compositeSpring;
+  private TranscriptListener liveListener;
+
+  @Before
+  public void setUp() {
+    looper = new SteppingSpringLooper();
+    BaseSpringSystem springSystem = new BaseSpringSystem(looper);
+    springs = new Spring[] {springSystem.createSpring(), springSystem.createSpring()};
+    for (Spring spring : springs) {
+      spring.setSpringConfig(new SpringConfig(200, 20));
+    }
+    compositeSpring = new CompositeReboundSpring(springSystem, springs);
+    liveListener = new TranscriptListener();
+    compositeSpring.addListener(liveListener);
+  }
+
+  @Test
+  public void replaysWhatTheCompositeSpringPublished() {
+    SpringRecorder recorder = new SpringRecorder(springs.length, 1000);
+    compositeSpring.setRecorder(recorder);
+
+    springs[0].setEndValue(100);
+    looper.runUntilIdle(SteppingSpringLooper.DEFAULT_FRAME_MILLIS, 1000);
+    springs[1].setEndValue(-20);
+    looper.runUntilIdle(SteppingSpringLooper.DEFAULT_FRAME_MILLIS, 1000);
+
+    TranscriptListener replayListener = new TranscriptListener();
+    SpringRecording recording = recorder.getRecording();
+    recording.replay(replayListener);
+
+    assertThat(recorder.getDroppedRecordCount()).isEqualTo(0L);
+    assertThat(replayListener.transcript.toString()).isEqualTo(liveListener.transcript.toString());
+    int last = recording.getRecordCount() - 1;
+    assertThat(recording.getEvents(last) & SpringRecording.EVENT_AT_REST).isNotEqualTo(0);
+    assertThat(recording.getValue(last, 1)).isEqualTo(-20f);
+    assertThat(recording.getVelocity(last, 1)).isEqualTo(0f);
+    assertThat(recording.getTimestampNanos(last)).isAtLeast(recording.getTimestampNanos(0));
+  }
+
+  @Test
+  public void roundTripsThroughAFile() throws IOException {
+    SpringRecorder recorder = new SpringRecorder(springs.length, 1000);
+    compositeSpring.setRecorder(recorder);
+    springs[0].setEndValue(100);
+    looper.runUntilIdle(SteppingSpringLooper.DEFAULT_FRAME_MILLIS, 1000);
+
+    File file = File.createTempFile("spring", ".rec");
+    try {
+      FileOutputStream out = new FileOutputStream(file);
+      try {
+        recorder.writeTo(out.getChannel());
+      } finally {
+        out.close();
+      }
+
+      SpringRecording recording = SpringRecording.map(file);
+      assertThat(recording.getLength()).isEqualTo(springs.length);
+      assertThat(recording.getRecordCount()).isEqualTo(recorder.getRecordCount());
+      TranscriptListener replayListener = new TranscriptListener();
+      recording.replay(replayListener);
+      assertThat(replayListener.transcript.toString())
+        .isEqualTo(liveListener.transcript.toString());
+    } finally {
+      file.delete();
+    }
+  }
+
+  @Test
+  public void dropsRecordsWhenFull() {
+    SpringRecorder recorder = new SpringRecorder(springs.length, 3);
+    compositeSpring.setRecorder(recorder);
+
+    springs[0].setEndValue(100);
+    looper.runUntilIdle(SteppingSpringLooper.DEFAULT_FRAME_MILLIS, 1000);
+
+    assertThat(recorder.getRecordCount()).isEqualTo(3);
+    assertThat(recorder.getDroppedRecordCount()).isGreaterThan(0L);
+    assertThat(recorder.getRecording().getRecordCount()).isEqualTo(3);
+  }
+
+  private static class TranscriptListener implements CompositeSpringListener {
+
+    private final StringBuilder transcript = new StringBuilder();
+
+    @Override
+    public void onCompositeSpringActivate() {
+      transcript.append("activate\n");
+    }
+
+    @Override
+    public void onCompositeSpringUpdate(float[] values, ComponentMask updated) {
+      for (int i = 0; i < values.length; i++) {
+        transcript.append(updated.isSet(i) ? '*' : ' ').append(values[i]).append(' ');
+      }
+      transcript.append('\n');
+    }
+
+    @Override
+    public void onCompositeSpringAtRest() {
+      transcript.append("rest\n");
+    }
+  }
+}
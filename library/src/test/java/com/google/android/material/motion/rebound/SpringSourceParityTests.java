@@ -0,0 +1,335 @@
+/*
+ * Copyright 2017-present The Material Motion Authors. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.material.motion.rebound;
+
+import android.graphics.PointF;
+import android.view.View;
+
+import com.google.android.material.motion.MotionRuntime;
+import com.google.android.material.motion.MotionState;
+import com.google.android.material.motion.interactions.MaterialSpring;
+import com.google.android.material.motion.properties.ViewProperties;
+import com.google.android.material.motion.sources.PhysicsSpringSource;
+import com.google.android.material.motion.sources.SpringSource;
+import com.google.android.material.motion.springs.PointFTypeVectorizer;
+import com.google.android.reactive.motion.rebound.BuildConfig;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowChoreographer;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Drives {@link ReboundSpringSource} and {@link PhysicsSpringSource} with the same
+ * {@code MaterialSpring<View, PointF>} config and destination script as the sample, on a synthetic
+ * clock of fixed frames, and measures how far their trajectories diverge, how long each takes to
+ * come to rest, and what each frame costs in CPU time and allocations.
+ * <p>
+ * The measurements are written to {@link #REPORT_FILE}, with the trajectory of each engine frame
+ * by frame, so that they can be compared from run to run. The bounds asserted on them are loose:
+ * the engines map tension and friction differently, so the bounds catch regressions of the rebound
+ * source, such as a dropped retarget or a per-frame allocation, rather than small differences
+ * between the engines.
+ * <p>
+ * CPU time depends on the machine and its load, so it is reported but not bounded. The physics
+ * source is driven through Robolectric's scheduler and Choreographer shadow, so its cost includes
+ * some shadow overhead. Its allocations are reported but not bounded either.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21)
+public class SpringSourceParityTests {
+
+  /**
+   * The report file, relative to the module directory that Gradle runs the unit tests in.
+   */
+  private static final File REPORT_FILE = new File("build/reports/spring-parity/report.txt");
+
+  /**
+   * Looking the bean up allocates, so it is looked up once rather than around every frame.
+   */
+  private static final ThreadMXBean THREAD_MX_BEAN = ManagementFactory.getThreadMXBean();
+
+  private static final int FRAME_MILLIS = 16;
+  private static final int MAX_FRAMES = 600;
+  private static final float REST_TOLERANCE = 1f;
+
+  /**
+   * The largest divergence between the two trajectories, as a fraction of the longest step of the
+   * script. A source that ignored the interruption would diverge by the whole step.
+   */
+  private static final float MAX_DIVERGENCE = 0.25f;
+
+  /**
+   * The largest factor between the times the two engines take to come to rest after the last
+   * destination.
+   */
+  private static final float MAX_REST_TIME_RATIO = 2f;
+
+  /**
+   * The largest median allocation of a rebound frame, which spans the spring system loop, the
+   * composition of the PointF and the view property writes.
+   */
+  private static final long MAX_FRAME_ALLOCATED_BYTES = 1024;
+
+  private static final float THRESHOLD = 0.01f;
+  private static final float FRICTION = 1f;
+  private static final float TENSION = 4f;
+
+  /**
+   * The destinations written by the script, and the frames they are written at: a tap, an
+   * interruption while the spring is still moving, and a diagonal move.
+   */
+  private static final int[] SCRIPT_FRAMES = {0, 20, 200};
+  private static final PointF[] SCRIPT_DESTINATIONS = {
+    new PointF(600f, 0f), new PointF(0f, 0f), new PointF(200f, 300f)};
+
+  private SteppingSpringLooper looper;
+
+  @Before
+  public void setUp() {
+    looper = new SteppingSpringLooper();
+    ShadowChoreographer.setPostFrameCallbackDelay(FRAME_MILLIS);
+  }
+
+  @After
+  public void tearDown() {
+    ShadowChoreographer.reset();
+  }
+
+  @Test
+  public void reboundAndPhysicsSourcesFollowTheSameScript() throws IOException {
+    SpringSource.System reboundSystem = new ReboundSpringSource.SystemBuilder()
+      .setSharedSpringSystem(looper.createSharedSpringSystem())
+      .build();
+
+    Run rebound = run(reboundSystem, new Clock() {
+      @Override
+      public void advanceFrame() {
+        looper.step(FRAME_MILLIS);
+      }
+    });
+    Run physics = run(PhysicsSpringSource.SYSTEM, new Clock() {
+      @Override
+      public void advanceFrame() {
+        Robolectric.getForegroundThreadScheduler().advanceBy(FRAME_MILLIS, TimeUnit.MILLISECONDS);
+      }
+    });
+
+    float divergence = rebound.getMaxDivergence(physics);
+    writeReport(divergence, rebound, physics);
+
+    for (Run run : new Run[] {rebound, physics}) {
+      PointF destination = SCRIPT_DESTINATIONS[SCRIPT_DESTINATIONS.length - 1];
+      assertThat(run.restFrame).isAtLeast(0);
+      assertThat(run.positions[run.frames - 1][0]).isWithin(REST_TOLERANCE).of(destination.x);
+      assertThat(run.positions[run.frames - 1][1]).isWithin(REST_TOLERANCE).of(destination.y);
+    }
+
+    assertThat(divergence).isAtMost(MAX_DIVERGENCE);
+    assertThat((float) rebound.getRestMillis())
+      .isAtMost(physics.getRestMillis() * MAX_REST_TIME_RATIO);
+    assertThat((float) rebound.getRestMillis())
+      .isAtLeast(physics.getRestMillis() / MAX_REST_TIME_RATIO);
+
+    assumeTrue(canMeasureAllocations());
+    assertThat(rebound.getMedianFrameAllocatedBytes()).isAtMost(MAX_FRAME_ALLOCATED_BYTES);
+  }
+
+  /**
+   * Runs the script against a spring created by the given system, advancing the given clock one
+   * frame at a time until the spring comes to rest after the last destination.
+   */
+  private static Run run(SpringSource.System system, Clock clock) {
+    MaterialSpring<View, PointF> spring = new MaterialSpring<>(
+      ViewProperties.TRANSLATION,
+      new PointFTypeVectorizer(),
+      new PointF(),
+      new PointF(),
+      new PointF(),
+      THRESHOLD,
+      FRICTION,
+      TENSION,
+      system);
+    View target = new View(RuntimeEnvironment.application);
+    new MotionRuntime().addInteraction(spring, target);
+
+    boolean measureAllocations = canMeasureAllocations();
+    Run run = new Run();
+    int lastScriptFrame = SCRIPT_FRAMES[SCRIPT_FRAMES.length - 1];
+    int script = 0;
+    for (int frame = 0; frame < MAX_FRAMES; frame++) {
+      if (script < SCRIPT_FRAMES.length && SCRIPT_FRAMES[script] == frame) {
+        spring.destination.write(SCRIPT_DESTINATIONS[script]);
+        script++;
+      }
+
+      long cpuNanos = THREAD_MX_BEAN.getCurrentThreadCpuTime();
+      long allocatedBytes = measureAllocations ? allocatedBytes() : 0;
+      clock.advanceFrame();
+      run.frameAllocatedBytes[frame] = measureAllocations ? allocatedBytes() - allocatedBytes : -1;
+      run.frameCpuNanos[frame] = THREAD_MX_BEAN.getCurrentThreadCpuTime() - cpuNanos;
+
+      run.positions[frame][0] = target.getTranslationX();
+      run.positions[frame][1] = target.getTranslationY();
+      run.frames = frame + 1;
+
+      boolean atRest = spring.state.read() == MotionState.AT_REST;
+      if (frame > lastScriptFrame && atRest) {
+        run.restFrame = frame;
+        break;
+      }
+    }
+    return run;
+  }
+
+  /**
+   * Writes the measurements, followed by both trajectories frame by frame.
+   */
+  private static void writeReport(float divergence, Run rebound, Run physics) throws IOException {
+    REPORT_FILE.getParentFile().mkdirs();
+    PrintWriter writer = new PrintWriter(new FileWriter(REPORT_FILE));
+    try {
+      writer.println(String.format(Locale.US, "divergence: %.1f%% of travel", divergence * 100));
+      writer.println(rebound.report("rebound"));
+      writer.println(physics.report("physics"));
+      writer.println();
+      writer.println("frame,rebound x,rebound y,physics x,physics y");
+      int frames = Math.max(rebound.frames, physics.frames);
+      for (int frame = 0; frame < frames; frame++) {
+        writer.println(String.format(Locale.US, "%d,%s,%s",
+          frame, rebound.position(frame), physics.position(frame)));
+      }
+    } finally {
+      writer.close();
+    }
+  }
+
+  private static boolean canMeasureAllocations() {
+    try {
+      Class<?> hotSpotBean = Class.forName("com.sun.management.ThreadMXBean");
+      return hotSpotBean.isInstance(THREAD_MX_BEAN)
+        && ((com.sun.management.ThreadMXBean) THREAD_MX_BEAN).isThreadAllocatedMemorySupported()
+        && ((com.sun.management.ThreadMXBean) THREAD_MX_BEAN).isThreadAllocatedMemoryEnabled();
+    } catch (ClassNotFoundException e) {
+      return false;
+    }
+  }
+
+  private static long allocatedBytes() {
+    return ((com.sun.management.ThreadMXBean) THREAD_MX_BEAN)
+      .getThreadAllocatedBytes(Thread.currentThread().getId());
+  }
+
+  /**
+   * Advances an engine's clock.
+   */
+  private interface Clock {
+
+    void advanceFrame();
+  }
+
+  /**
+   * The trajectory and cost of one run of the script.
+   */
+  private static class Run {
+
+    private final float[][] positions = new float[MAX_FRAMES][2];
+    private final long[] frameCpuNanos = new long[MAX_FRAMES];
+    private final long[] frameAllocatedBytes = new long[MAX_FRAMES];
+    private int frames;
+    private int restFrame = -1;
+
+    /**
+     * Returns the largest distance between the two trajectories over their common frames, as a
+     * fraction of the largest distance travelled in a single step of the script.
+     */
+    float getMaxDivergence(Run other) {
+      float travel = 0;
+      PointF from = new PointF();
+      for (PointF to : SCRIPT_DESTINATIONS) {
+        travel = Math.max(travel, (float) Math.hypot(to.x - from.x, to.y - from.y));
+        from = to;
+      }
+
+      float divergence = 0;
+      for (int frame = 0, count = Math.min(frames, other.frames); frame < count; frame++) {
+        divergence = Math.max(divergence, (float) Math.hypot(
+          positions[frame][0] - other.positions[frame][0],
+          positions[frame][1] - other.positions[frame][1]));
+      }
+      return divergence / travel;
+    }
+
+    /**
+     * Returns the time the spring took to come to rest after the last destination.
+     */
+    int getRestMillis() {
+      return (restFrame - SCRIPT_FRAMES[SCRIPT_FRAMES.length - 1]) * FRAME_MILLIS;
+    }
+
+    /**
+     * The median rather than the mean, so that class loading and compilation in the first frames
+     * do not count.
+     */
+    long getMedianFrameCpuNanos() {
+      return median(frameCpuNanos);
+    }
+
+    long getMedianFrameAllocatedBytes() {
+      return median(frameAllocatedBytes);
+    }
+
+    String position(int frame) {
+      if (frame >= frames) {
+        return ",";
+      }
+      return String.format(Locale.US, "%.3f,%.3f", positions[frame][0], positions[frame][1]);
+    }
+
+    String report(String name) {
+      return String.format(Locale.US,
+        "%s: at rest after %d ms, median %.1f us and %d bytes per frame",
+        name,
+        getRestMillis(),
+        getMedianFrameCpuNanos() / 1000.0,
+        getMedianFrameAllocatedBytes());
+    }
+
+    private long median(long[] values) {
+      long[] sorted = Arrays.copyOf(values, frames);
+      Arrays.sort(sorted);
+      return sorted[frames / 2];
+    }
+  }
+}
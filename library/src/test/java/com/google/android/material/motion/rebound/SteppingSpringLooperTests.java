@@ -0,0 +1,107 @@
+/*
+ * Copyright 2017-present The Material Motion Authors. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.material.motion.rebound;
+
+import com.facebook.rebound.BaseSpringSystem;
+import com.facebook.rebound.Spring;
+import com.google.android.material.motion.rebound.CompositeReboundSpring.CompositeSpringListener;
+import com.google.android.reactive.motion.rebound.BuildConfig;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.google.common.truth.Truth.assertThat;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21)
+public class SteppingSpringLooperTests {
+
+  private SteppingSpringLooper looper;
+  private SharedSpringSystem sharedSpringSystem;
+
+  @Before
+  public void setUp() {
+    looper = new SteppingSpringLooper();
+    sharedSpringSystem = looper.createSharedSpringSystem();
+  }
+
+  @Test
+  public void onlyLoopsWhileSpringsAreActive() {
+    BaseSpringSystem springSystem = sharedSpringSystem.acquire();
+    Spring spring = springSystem.createSpring();
+
+    looper.step(SteppingSpringLooper.DEFAULT_FRAME_MILLIS);
+    assertThat(looper.isRunning()).isFalse();
+    assertThat(looper.getElapsedMillis()).isEqualTo(0.0);
+
+    spring.setEndValue(1);
+    assertThat(looper.isRunning()).isTrue();
+
+    int frames = looper.runUntilIdle(SteppingSpringLooper.DEFAULT_FRAME_MILLIS, 1000);
+    assertThat(frames).isGreaterThan(0);
+    assertThat(frames).isLessThan(1000);
+    assertThat(looper.isRunning()).isFalse();
+    assertThat(spring.isAtRest()).isTrue();
+    assertThat(spring.getCurrentValue()).isEqualTo(1.0);
+  }
+
+  @Test
+  public void stepsCompositeSpringsWithoutALooperThread() throws InterruptedException {
+    final List<float[]> updates = new ArrayList<>();
+    final int[] rests = new int[1];
+
+    Thread thread = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        BaseSpringSystem springSystem = sharedSpringSystem.acquire();
+        Spring[] springs = {springSystem.createSpring(), springSystem.createSpring()};
+        CompositeReboundSpring compositeSpring = new CompositeReboundSpring(springSystem, springs);
+        compositeSpring.addListener(new CompositeSpringListener() {
+          @Override
+          public void onCompositeSpringActivate() {
+          }
+
+          @Override
+          public void onCompositeSpringUpdate(float[] values, ComponentMask updated) {
+            updates.add(values.clone());
+          }
+
+          @Override
+          public void onCompositeSpringAtRest() {
+            rests[0]++;
+          }
+        });
+
+        springs[0].setEndValue(10);
+        springs[1].setEndValue(-10);
+        // Simulating several seconds of animation takes no wall clock time.
+        looper.runUntilIdle(SteppingSpringLooper.DEFAULT_FRAME_MILLIS, 1000);
+      }
+    });
+    thread.start();
+    thread.join();
+
+    assertThat(updates).isNotEmpty();
+    assertThat(updates.get(updates.size() - 1)).isEqualTo(new float[] {10f, -10f}, 0f);
+    assertThat(rests[0]).isEqualTo(1);
+  }
+}
@@ -0,0 +1,161 @@
+/*
+ * Copyright 2017-present The Material Motion Authors. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.material.motion.rebound;
+
+import android.graphics.PointF;
+
+import com.google.android.material.motion.MotionObserver.SimpleMotionObserver;
+import com.google.android.material.motion.MotionState;
+import com.google.android.material.motion.interactions.MaterialSpring;
+import com.google.android.material.motion.properties.ViewProperties;
+import com.google.android.material.motion.springs.PointFTypeVectorizer;
+import com.google.android.reactive.motion.rebound.BuildConfig;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+
+import static com.google.common.truth.Truth.assertThat;
+
+/**
+ * Drives {@link ThreadedSpringSource} through its lifecycle callbacks, with a simulation that
+ * runs its work and its frames by hand on the test thread.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21)
+public class ThreadedSpringSourceTests {
+
+  private static final double FRAME_MILLIS = SteppingSpringLooper.DEFAULT_FRAME_MILLIS;
+  private static final int MAX_FRAMES = 1000;
+
+  private final Queue<Runnable> simulationWork = new ArrayDeque<>();
+
+  private SteppingSpringLooper looper;
+  private MaterialSpring<?, PointF> interaction;
+  private ThreadedSpringSource<PointF> source;
+  private RecordingObserver observer;
+  private StringBuilder states;
+
+  @Before
+  public void setUp() {
+    looper = new SteppingSpringLooper();
+    SimulationThread simulationThread = new SimulationThread(new Executor() {
+      @Override
+      public void execute(Runnable runnable) {
+        simulationWork.add(runnable);
+      }
+    }, looper.createSharedSpringSystem());
+    interaction = new MaterialSpring<>(
+      ViewProperties.TRANSLATION,
+      new PointFTypeVectorizer(),
+      new PointF(),
+      new PointF(),
+      new PointF(),
+      0.01f,
+      1f,
+      4f,
+      ReboundSpringSource.SYSTEM);
+    source = new ThreadedSpringSource<>(interaction, simulationThread);
+    observer = new RecordingObserver();
+
+    states = new StringBuilder();
+    interaction.state.subscribe(new SimpleMotionObserver<Integer>() {
+      @Override
+      public void next(Integer value) {
+        states.append(value == MotionState.ACTIVE ? 'A' : 'R');
+      }
+    });
+    states.setLength(0);
+
+    source.onConnect(observer);
+  }
+
+  @Test
+  public void writesStateTransitionsInOrderWhenReadsAreSkipped() {
+    source.onEnable(observer);
+    interaction.destination.write(new PointF(100f, 50f));
+
+    // The springs activate and come to rest before the main thread reads a frame.
+    runSimulationWork();
+    looper.runUntilIdle(FRAME_MILLIS, MAX_FRAMES);
+    source.readFrame();
+
+    assertThat(states.toString()).isEqualTo("AR");
+    assertThat(observer.last.x).isWithin(0.01f).of(100f);
+    assertThat(observer.last.y).isWithin(0.01f).of(50f);
+  }
+
+  @Test
+  public void coalescesCommandsUntilTheSimulationAppliesThem() {
+    source.onEnable(observer);
+    runSimulationWork();
+
+    interaction.destination.write(new PointF(10f, 0f));
+    interaction.destination.write(new PointF(20f, 0f));
+    interaction.tension.write(8f);
+    interaction.destination.write(new PointF(30f, 0f));
+
+    assertThat(simulationWork).hasSize(1);
+    runSimulationWork();
+    looper.runUntilIdle(FRAME_MILLIS, MAX_FRAMES);
+    source.readFrame();
+
+    assertThat(states.toString()).isEqualTo("AR");
+    assertThat(observer.last.x).isWithin(0.01f).of(30f);
+  }
+
+  @Test
+  public void appliesCommandsRecordedWhileAStaleRunnableIsPending() {
+    source.onEnable(observer);
+    runSimulationWork();
+
+    // The runnable that applies this command only runs after the source is enabled again.
+    interaction.destination.write(new PointF(100f, 0f));
+    source.onDisable(observer);
+    source.onEnable(observer);
+    interaction.destination.write(new PointF(50f, 0f));
+
+    runSimulationWork();
+    looper.runUntilIdle(FRAME_MILLIS, MAX_FRAMES);
+    source.readFrame();
+
+    assertThat(states.toString()).isEqualTo("AR");
+    assertThat(observer.last.x).isWithin(0.01f).of(50f);
+  }
+
+  private void runSimulationWork() {
+    Runnable runnable;
+    while ((runnable = simulationWork.poll()) != null) {
+      runnable.run();
+    }
+  }
+
+  private static class RecordingObserver extends SimpleMotionObserver<PointF> {
+
+    private PointF last;
+
+    @Override
+    public void next(PointF value) {
+      last = new PointF(value.x, value.y);
+    }
+  }
+}